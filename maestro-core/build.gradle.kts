@@ -12,6 +12,8 @@ val flywayVersion = "11.3.4"
 val jdbiVersion = "3.48.0"
 val testcontainersVersion = "1.20.6"
 val floggerVersion = "0.8"
+val jmhVersion = "1.37"
+val micrometerVersion = "1.13.6"
 
 dependencies {
     implementation("org.postgresql:postgresql:42.7.3")
@@ -35,9 +37,14 @@ dependencies {
     implementation("org.awaitility:awaitility:4.3.0")
     // https://mvnrepository.com/artifact/org.jdbi/jdbi3-core
     implementation("org.jdbi:jdbi3-core:$jdbiVersion")
+    // only for MicrometerMetrics, applications using it bring their own micrometer-core
+    compileOnly("io.micrometer:micrometer-core:$micrometerVersion")
     // https://mvnrepository.com/artifact/org.jdbi/jdbi3-postgres
     testImplementation("org.jdbi:jdbi3-postgres:$jdbiVersion")
 
+    // weaves the test workflows and activities at compile time, see maestro-processor
+    testAnnotationProcessor(project(":maestro-processor"))
+
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
     testImplementation("org.testcontainers:junit-jupiter:$testcontainersVersion")
@@ -45,12 +52,19 @@ dependencies {
     testImplementation("org.testcontainers:postgresql:$testcontainersVersion")
     // https://mvnrepository.com/artifact/org.awaitility/awaitility
 
+    // benchmarks under src/test/java/.../benchmark, run with gradle test -Pbenchmark
+    testImplementation("org.openjdk.jmh:jmh-core:$jmhVersion")
+    testAnnotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
+
 
 }
 
 tasks.withType<Test> {
     testLogging.showStandardStreams = project.hasProperty("stdout")
-    useJUnitPlatform()
+    useJUnitPlatform {
+        // benchmarks are slow and only meaningful on demand: gradle test -Pbenchmark
+        if (!project.hasProperty("benchmark")) excludeTags("benchmark")
+    }
 }
 
 tasks.jar {
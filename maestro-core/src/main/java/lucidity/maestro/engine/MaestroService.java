@@ -3,12 +3,24 @@ package lucidity.maestro.engine;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import lucidity.maestro.engine.api.Maestro;
+import lucidity.maestro.engine.api.metrics.MaestroMetrics;
+import lucidity.maestro.engine.api.metrics.PrometheusMetrics;
 import lucidity.maestro.engine.api.workflow.RunnableWorkflow;
 import lucidity.maestro.engine.api.workflow.WorkflowOptions;
 import lucidity.maestro.engine.internal.MaestroImpl;
+import lucidity.maestro.engine.internal.config.ExecutorConfiguration;
 import lucidity.maestro.engine.internal.config.Initializer;
+import lucidity.maestro.engine.internal.config.TimeoutRecoveryPolicy;
+import lucidity.maestro.engine.internal.dto.ExecutionQueueMetrics;
 import lucidity.maestro.engine.internal.entity.EventModel;
+import lucidity.maestro.engine.internal.metrics.EngineMetrics;
 import lucidity.maestro.engine.internal.repo.EventRepo;
+import lucidity.maestro.engine.internal.repo.EventStore;
+import lucidity.maestro.engine.internal.repo.InMemoryEventStore;
+import lucidity.maestro.engine.internal.repo.GroupCommitEventWriter;
+import lucidity.maestro.engine.internal.worker.SignalCoalescer;
+import lucidity.maestro.engine.internal.worker.WakeupListener;
+import lucidity.maestro.engine.internal.worker.WorkflowExecutionQueue;
 import org.flywaydb.core.Flyway;
 import org.flywaydb.core.api.output.MigrateResult;
 import org.slf4j.Logger;
@@ -17,6 +29,7 @@ import org.slf4j.LoggerFactory;
 import javax.sql.DataSource;
 import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Supplier;
 
 public class MaestroService {
@@ -40,6 +53,10 @@ public class MaestroService {
         return serviceInstance.newWorkflow(clazz, options);
     }
 
+    public static ExecutionQueueMetrics getExecutionQueueMetrics() {
+        return serviceInstance.getExecutionQueueMetrics();
+    }
+
     public static List<EventModel> getWorkflowEvents(String workflowId) {
         return serviceInstance.getWorkflowEvents(workflowId);
     }
@@ -51,6 +68,16 @@ public class MaestroService {
     public static class MaestroServiceBuilder {
 
         private DataSource dataSource;
+        private EventStore eventStore;
+        private boolean inMemoryEventStore = false;
+        private Integer groupCommitMaxBatchSize;
+        private Integer groupCommitFlusherThreads;
+        private boolean virtualThreads = false;
+        private int executionQueueCapacity = WorkflowExecutionQueue.DEFAULT_CAPACITY;
+        private Duration signalCoalescingWindow = Duration.ZERO;
+        private TimeoutRecoveryPolicy timeoutRecoveryPolicy = TimeoutRecoveryPolicy.DEFAULT;
+        private boolean wakeupNotifications = false;
+        private MaestroMetrics metrics = new PrometheusMetrics();
 
         public MaestroServiceBuilder configureDataSource(DataSource dataSource) {
             this.dataSource = dataSource;
@@ -62,16 +89,98 @@ public class MaestroService {
             return this;
         }
 
-        public Maestro build() {
-            runDatabaseMigration(this.dataSource);
+        public MaestroServiceBuilder configureEventStore(EventStore eventStore) {
+            this.eventStore = eventStore;
+            this.inMemoryEventStore = false;
+            return this;
+        }
+
+        // keeps all events on the heap: no Postgres needed, but nothing survives a restart
+        public MaestroServiceBuilder configureInMemoryEventStore() {
+            this.eventStore = null;
+            this.inMemoryEventStore = true;
+            return this;
+        }
+
+        // events from concurrent workflows are inserted together, sharing one transaction per batch
+        public MaestroServiceBuilder configureGroupCommit(int maxBatchSize, int flusherThreads) {
+            this.groupCommitMaxBatchSize = maxBatchSize;
+            this.groupCommitFlusherThreads = flusherThreads;
+            return this;
+        }
+
+        // runs workflow replays and signal-triggered executions on virtual threads, requires Java 21
+        public MaestroServiceBuilder configureVirtualThreads() {
+            this.virtualThreads = true;
+            return this;
+        }
+
+        // executions beyond this many waiting for a thread are deferred, keeping only the latest per workflow, instead of queued
+        public MaestroServiceBuilder configureExecutionQueueCapacity(int capacity) {
+            if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+            this.executionQueueCapacity = capacity;
+            return this;
+        }
+
+        // signals are stored right away, but the workflow resumes once per window with all signals received in it
+        public MaestroServiceBuilder configureSignalCoalescingWindow(Duration window) {
+            this.signalCoalescingWindow = window;
+            return this;
+        }
+
+        // timed-out workflows are replayed up to maxAttempts times, backing off exponentially between attempts
+        public MaestroServiceBuilder configureTimeoutRecovery(int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+            this.timeoutRecoveryPolicy = new TimeoutRecoveryPolicy(maxAttempts, initialBackoff, maxBackoff);
+            return this;
+        }
+
+        // sleeps and timed-out workflows resume when they're due, notified by Postgres, rather than on the next poll
+        public MaestroServiceBuilder configureWakeupNotifications() {
+            this.wakeupNotifications = true;
+            return this;
+        }
+
+        // replaces the built-in metrics, which are served at /metrics, e.g. with a MicrometerMetrics
+        public MaestroServiceBuilder configureMetrics(MaestroMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
 
-            EventRepo eventRepo = new EventRepo(this.dataSource);
-            MaestroImpl m = new MaestroImpl(eventRepo, this.dataSource);
-            Initializer.initialize(m, eventRepo);
+        public Maestro build() {
+            if (this.dataSource == null && this.eventStore == null && !this.inMemoryEventStore) {
+                throw new IllegalStateException("Either a data source or an event store must be configured");
+            }
+            if (this.wakeupNotifications && this.dataSource == null) {
+                throw new IllegalStateException("Wakeup notifications require a data source");
+            }
+            if (this.dataSource != null) runDatabaseMigration(this.dataSource);
+
+            EngineMetrics engineMetrics = new EngineMetrics(metrics);
+            EventStore eventStore = this.eventStore != null ? this.eventStore
+                    : inMemoryEventStore ? new InMemoryEventStore(engineMetrics)
+                    : initializeEventRepo(engineMetrics);
+            ExecutorService executor = virtualThreads
+                    ? ExecutorConfiguration.virtualThreadPerTask()
+                    : ExecutorConfiguration.fixedThreadPool();
+            WakeupListener wakeupListener = wakeupNotifications ? new WakeupListener(this.dataSource) : null;
+            MaestroImpl m = new MaestroImpl(
+                    eventStore, this.dataSource,
+                    new WorkflowExecutionQueue(executor, executionQueueCapacity),
+                    new SignalCoalescer(signalCoalescingWindow),
+                    wakeupListener, engineMetrics
+            );
+            Initializer.initialize(m, eventStore, timeoutRecoveryPolicy, wakeupListener, metrics);
+            if (wakeupListener != null) wakeupListener.start();
             serviceInstance = m;
             return m;
         }
 
+        private EventRepo initializeEventRepo(EngineMetrics engineMetrics) {
+            GroupCommitEventWriter groupCommitEventWriter = groupCommitMaxBatchSize == null ? null
+                    : new GroupCommitEventWriter(this.dataSource, groupCommitMaxBatchSize, groupCommitFlusherThreads);
+            return new EventRepo(this.dataSource, groupCommitEventWriter, engineMetrics);
+        }
+
         private static void runDatabaseMigration(DataSource dataSource) {
             MigrateResult migrate = Flyway.configure()
                     .baselineVersion("0")
@@ -1,9 +1,13 @@
 package lucidity.maestro.engine.api;
 
 import lucidity.maestro.engine.api.activity.ActivityOptions;
+import lucidity.maestro.engine.api.signal.Signal;
 import lucidity.maestro.engine.api.workflow.RunnableWorkflow;
 import lucidity.maestro.engine.api.workflow.WorkflowActions;
 import lucidity.maestro.engine.api.workflow.WorkflowOptions;
+import lucidity.maestro.engine.api.workflow.WorkflowStart;
+
+import java.util.List;
 
 public interface Maestro {
 
@@ -16,4 +20,12 @@ public interface Maestro {
     WorkflowActions workflowActions();
 
     <T extends RunnableWorkflow> T newWorkflow(Class<T> clazz, WorkflowOptions options);
+
+    // same as calling the signal functions on workflows of the given type, but stored in one batch and
+    // resuming each started workflow once
+    void signal(Class<? extends RunnableWorkflow> workflowType, List<Signal> signals);
+
+    // stores the STARTED events in batches and queues the executions, skipping workflows that already started;
+    // blocks while the execution queue is full
+    void startWorkflows(Class<? extends RunnableWorkflow> workflowType, List<WorkflowStart> starts);
 }
@@ -0,0 +1,39 @@
+package lucidity.maestro.engine.api.metrics;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * Where the engine reports what it measures. Names are dot-separated, e.g. {@code maestro.db.query}, and tags are
+ * given as alternating keys and values. {@link PrometheusMetrics} is used unless another implementation is
+ * configured, such as {@link MicrometerMetrics} to report into an existing meter registry.
+ */
+public interface MaestroMetrics {
+
+    MaestroMetrics NOOP = new MaestroMetrics() {
+        @Override
+        public void increment(String name, long amount, String... tags) {
+        }
+
+        @Override
+        public void recordTime(String name, long nanos, String... tags) {
+        }
+
+        @Override
+        public void recordValue(String name, double value, String... tags) {
+        }
+
+        @Override
+        public void gauge(String name, DoubleSupplier value, String... tags) {
+        }
+    };
+
+    void increment(String name, long amount, String... tags);
+
+    void recordTime(String name, long nanos, String... tags);
+
+    // e.g. a count per operation, whose distribution matters rather than its total
+    void recordValue(String name, double value, String... tags);
+
+    // registered once, value is read whenever the metrics are collected
+    void gauge(String name, DoubleSupplier value, String... tags);
+}
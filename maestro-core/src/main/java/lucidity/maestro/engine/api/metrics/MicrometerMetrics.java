@@ -0,0 +1,41 @@
+package lucidity.maestro.engine.api.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Reports into a Micrometer registry instead of the built-in one. maestro-core is only compiled against
+ * micrometer-core, so the application has to depend on it to use this class. {@code /metrics} is not served then,
+ * since the registry is exported however the application exports its other meters.
+ */
+public class MicrometerMetrics implements MaestroMetrics {
+
+    private final MeterRegistry registry;
+
+    public MicrometerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void increment(String name, long amount, String... tags) {
+        registry.counter(name, tags).increment(amount);
+    }
+
+    @Override
+    public void recordTime(String name, long nanos, String... tags) {
+        registry.timer(name, tags).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordValue(String name, double value, String... tags) {
+        registry.summary(name, tags).record(value);
+    }
+
+    @Override
+    public void gauge(String name, DoubleSupplier value, String... tags) {
+        Gauge.builder(name, value, DoubleSupplier::getAsDouble).tags(tags).strongReference(true).register(registry);
+    }
+}
@@ -0,0 +1,143 @@
+package lucidity.maestro.engine.api.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * Keeps every meter in memory and writes them in the Prometheus text format, served by the embedded server at
+ * {@code /metrics}. Times and values are summaries with a count and a sum, so rates and averages can be derived
+ * but quantiles cannot.
+ */
+public class PrometheusMetrics implements MaestroMetrics {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final ConcurrentMap<MeterId, Meter> meters = new ConcurrentHashMap<>();
+
+    @Override
+    public void increment(String name, long amount, String... tags) {
+        meter(new MeterId(name + ".total", tags), Counter.class, id -> new Counter()).value.add(amount);
+    }
+
+    @Override
+    public void recordTime(String name, long nanos, String... tags) {
+        meter(new MeterId(name + ".seconds", tags), Summary.class, id -> new Summary()).record(nanos / 1e9);
+    }
+
+    @Override
+    public void recordValue(String name, double value, String... tags) {
+        meter(new MeterId(name, tags), Summary.class, id -> new Summary()).record(value);
+    }
+
+    @Override
+    public void gauge(String name, DoubleSupplier value, String... tags) {
+        meters.put(new MeterId(name, tags), new Gauge(value));
+    }
+
+    public void scrape(Writer writer) {
+        // grouped by metric name, since Prometheus expects all series of a metric to follow its TYPE line
+        Map<String, List<Map.Entry<MeterId, Meter>>> families = new TreeMap<>();
+        meters.entrySet().forEach(entry -> families.computeIfAbsent(entry.getKey().sanitizedName(), name -> new ArrayList<>()).add(entry));
+
+        try {
+            for (Map.Entry<String, List<Map.Entry<MeterId, Meter>>> family : families.entrySet()) {
+                String name = family.getKey();
+                writer.write("# TYPE " + name + " " + family.getValue().get(0).getValue().type() + "\n");
+                for (Map.Entry<MeterId, Meter> series : family.getValue()) {
+                    String labels = series.getKey().labels();
+                    Meter meter = series.getValue();
+                    if (meter instanceof Counter counter) {
+                        writer.write(name + labels + " " + counter.value.sum() + "\n");
+                    } else if (meter instanceof Gauge gauge) {
+                        writer.write(name + labels + " " + gauge.value().getAsDouble() + "\n");
+                    } else if (meter instanceof Summary summary) {
+                        writer.write(name + "_count" + labels + " " + summary.count.sum() + "\n");
+                        writer.write(name + "_sum" + labels + " " + summary.sum.sum() + "\n");
+                    }
+                }
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T extends Meter> T meter(MeterId id, Class<T> type, Function<MeterId, T> factory) {
+        Meter meter = meters.get(id);
+        if (meter == null) meter = meters.computeIfAbsent(id, factory);
+        if (!type.isInstance(meter)) {
+            throw new IllegalArgumentException(id.name() + " is already registered as a " + meter.type());
+        }
+        return type.cast(meter);
+    }
+
+    private record MeterId(String name, List<String> tags) {
+
+        MeterId(String name, String... tags) {
+            this(name, List.of(tags));
+            if (tags.length % 2 != 0) throw new IllegalArgumentException("Tags must be pairs of keys and values: " + this.tags);
+        }
+
+        String sanitizedName() {
+            return name.replaceAll("[^a-zA-Z0-9_:]", "_");
+        }
+
+        String labels() {
+            if (tags.isEmpty()) return "";
+            StringBuilder labels = new StringBuilder("{");
+            for (int i = 0; i < tags.size(); i += 2) {
+                if (i > 0) labels.append(',');
+                labels.append(tags.get(i).replaceAll("[^a-zA-Z0-9_]", "_")).append("=\"")
+                        .append(tags.get(i + 1).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                        .append('"');
+            }
+            return labels.append('}').toString();
+        }
+    }
+
+    private interface Meter {
+        String type();
+    }
+
+    private static final class Counter implements Meter {
+        private final LongAdder value = new LongAdder();
+
+        @Override
+        public String type() {
+            return "counter";
+        }
+    }
+
+    private record Gauge(DoubleSupplier value) implements Meter {
+        @Override
+        public String type() {
+            return "gauge";
+        }
+    }
+
+    private static final class Summary implements Meter {
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+
+        void record(double value) {
+            count.increment();
+            sum.add(value);
+        }
+
+        @Override
+        public String type() {
+            return "summary";
+        }
+    }
+}
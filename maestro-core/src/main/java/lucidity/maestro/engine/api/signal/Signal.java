@@ -0,0 +1,5 @@
+package lucidity.maestro.engine.api.signal;
+
+// a call to the @SignalFunction method signalFunction of the workflow with workflowId, sent through Maestro#signal
+public record Signal(String workflowId, String signalFunction, Object payload) {
+}
@@ -0,0 +1,32 @@
+package lucidity.maestro.engine.api.workflow;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Opts a workflow implementation into state snapshots. Every {@link #everySteps()} completed steps
+ * the fields of the workflow are persisted together with the position in its history. A replay
+ * restores those fields and continues numbering steps after the snapshot, so only the events
+ * recorded since the snapshot are loaded and replayed.
+ * <p>
+ * <b>{@code execute} still runs from the top after a restore, and the steps before the snapshot are not
+ * answered from the history.</b> The workflow has to skip them itself, based on the field named by
+ * {@link #progress()}, e.g. a stage it advances after each step and checks before it. Otherwise those steps
+ * run again, along with whatever they changed in the restored fields. Registering a workflow whose progress
+ * field doesn't exist fails, and a snapshot in which the progress field still has the value a new instance
+ * starts with is ignored in favor of replaying the whole history. Activities started through
+ * {@link lucidity.maestro.engine.api.async.Async} are not supported in snapshotted workflows.
+ */
+@Inherited
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Snapshot {
+
+    int everySteps() default 100;
+
+    // the name of the field execute reads to skip the steps a restored snapshot already reflects
+    String progress();
+}
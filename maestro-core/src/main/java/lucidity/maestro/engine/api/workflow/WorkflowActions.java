@@ -3,7 +3,8 @@ package lucidity.maestro.engine.api.workflow;
 import lucidity.maestro.engine.internal.MaestroImpl;
 import lucidity.maestro.engine.internal.handler.Await;
 import lucidity.maestro.engine.internal.handler.Sleep;
-import lucidity.maestro.engine.internal.repo.EventRepo;
+import lucidity.maestro.engine.internal.repo.EventStore;
+import lucidity.maestro.engine.internal.worker.WakeupListener;
 
 import javax.sql.DataSource;
 import java.time.Duration;
@@ -20,9 +21,9 @@ public interface WorkflowActions {
         private Sleep sleep;
         private Await await;
 
-        public WorkflowActionsImpl(MaestroImpl maestroImpl, EventRepo eventRepo, DataSource dataSource) {
-            this.sleep = new Sleep(maestroImpl, eventRepo, dataSource);
-            this.await = new Await(maestroImpl,eventRepo);
+        public WorkflowActionsImpl(MaestroImpl maestroImpl, EventStore eventStore, DataSource dataSource, WakeupListener wakeupListener) {
+            this.sleep = new Sleep(maestroImpl, eventStore, dataSource, wakeupListener);
+            this.await = new Await(maestroImpl,eventStore);
         }
 
         @Override
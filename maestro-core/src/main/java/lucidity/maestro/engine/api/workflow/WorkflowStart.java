@@ -0,0 +1,5 @@
+package lucidity.maestro.engine.api.workflow;
+
+// one workflow to start through Maestro#startWorkflows, input is passed to its execute method
+public record WorkflowStart(WorkflowOptions options, Object input) {
+}
@@ -3,83 +3,144 @@ package lucidity.maestro.engine.internal;
 import lucidity.maestro.engine.api.Maestro;
 import lucidity.maestro.engine.api.activity.Activity;
 import lucidity.maestro.engine.api.activity.ActivityOptions;
+import lucidity.maestro.engine.api.signal.Signal;
 import lucidity.maestro.engine.api.signal.SignalFunction;
 import lucidity.maestro.engine.api.throwable.UnregisteredWorkflowException;
 import lucidity.maestro.engine.api.workflow.RunnableWorkflow;
+import lucidity.maestro.engine.api.workflow.Snapshot;
 import lucidity.maestro.engine.api.workflow.WorkflowActions;
 import lucidity.maestro.engine.api.workflow.WorkflowOptions;
+import lucidity.maestro.engine.api.workflow.WorkflowStart;
+import lucidity.maestro.engine.internal.config.ExecutorConfiguration;
+import lucidity.maestro.engine.internal.dto.ExecutionQueueMetrics;
 import lucidity.maestro.engine.internal.dto.WorkflowContext;
+import lucidity.maestro.engine.internal.entity.Category;
 import lucidity.maestro.engine.internal.entity.EventEntity;
 import lucidity.maestro.engine.internal.entity.EventModel;
+import lucidity.maestro.engine.internal.entity.Status;
+import lucidity.maestro.engine.internal.entity.WorkflowSnapshot;
 import lucidity.maestro.engine.internal.handler.ActivityInvocationHandler;
-import lucidity.maestro.engine.internal.repo.EventRepo;
+import lucidity.maestro.engine.internal.metrics.EngineMetrics;
+import lucidity.maestro.engine.internal.repo.EventStore;
 import lucidity.maestro.engine.internal.util.Json;
+import lucidity.maestro.engine.internal.util.MethodDescriptor;
+import lucidity.maestro.engine.internal.util.TypeDescriptor;
 import lucidity.maestro.engine.internal.util.Util;
+import lucidity.maestro.engine.internal.worker.SignalCoalescer;
+import lucidity.maestro.engine.internal.worker.WakeupListener;
+import lucidity.maestro.engine.internal.worker.WorkflowExecutionQueue;
 import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.implementation.FieldAccessor;
 import net.bytebuddy.implementation.MethodDelegation;
 
 import javax.sql.DataSource;
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
+import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
-import java.lang.reflect.Type;
 import java.time.Duration;
 import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static net.bytebuddy.matcher.ElementMatchers.isAnnotatedWith;
 import static net.bytebuddy.matcher.ElementMatchers.named;
 
 public class MaestroImpl implements Maestro {
+    private static final String WORKFLOW_OPTIONS_FIELD = "maestro$workflowOptions";
+    // suffixes of the classes generated by maestro-processor, kept in sync with its generators
+    private static final String WOVEN_WORKFLOW_SUFFIX = "$MaestroWorkflow";
+    private static final String WOVEN_ACTIVITY_SUFFIX = "$MaestroActivity";
+    // STARTED events inserted per transaction by startWorkflows
+    private static final int START_BATCH_SIZE = 1_000;
+
     private final Map<Class<?>, Object> typeToActivity = new HashMap<>();
     private final Map<String, Class<? extends RunnableWorkflow>> simpleNameToWorkflowImplType = new HashMap<>();
-    private final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-    private final EventRepo eventRepo;
+    private final Map<Class<?>, Class<? extends RunnableWorkflow>> workflowImplTypeToProxyType = new ConcurrentHashMap<>();
+    private final WorkflowExecutionQueue executionQueue;
+    private final EventStore eventStore;
+    private final EngineMetrics metrics;
+
+    private final WorkflowExecutionInterceptor executionInterceptor;
+    private final WorkflowSignalMethodInterceptor signalMethodInterceptor;
+    private final WorkflowInterceptors wovenInterceptors;
 
     private final WorkflowActions workflowActions;
 
-    public MaestroImpl(EventRepo eventRepo, DataSource dataSource) {
-        this.workflowActions = new WorkflowActions.WorkflowActionsImpl(this, eventRepo, dataSource);
-        this.eventRepo = eventRepo;
+    public MaestroImpl(EventStore eventStore, DataSource dataSource) {
+        this(eventStore, dataSource,
+                new WorkflowExecutionQueue(ExecutorConfiguration.fixedThreadPool(), WorkflowExecutionQueue.DEFAULT_CAPACITY),
+                new SignalCoalescer(Duration.ZERO), null, EngineMetrics.NOOP);
+    }
+
+    public MaestroImpl(EventStore eventStore, DataSource dataSource, WorkflowExecutionQueue executionQueue,
+                       SignalCoalescer signalCoalescer, WakeupListener wakeupListener,
+                       EngineMetrics metrics) {
+        this.metrics = metrics;
+        this.executionQueue = executionQueue;
+        this.workflowActions = new WorkflowActions.WorkflowActionsImpl(this, eventStore, dataSource, wakeupListener);
+        this.eventStore = eventStore;
+        this.executionInterceptor = new WorkflowExecutionInterceptor(eventStore, executionQueue, metrics);
+        this.signalMethodInterceptor = new WorkflowSignalMethodInterceptor(eventStore, signalCoalescer, this::replayWorkflow);
+        this.wovenInterceptors = new WorkflowInterceptors(executionInterceptor, signalMethodInterceptor);
+
+        metrics.gauge("maestro.execution.queue.depth", () -> executionQueue.metrics().queueDepth());
+        metrics.gauge("maestro.execution.queue.running", () -> executionQueue.metrics().running());
+    }
+
+    public EngineMetrics metrics() {
+        return metrics;
+    }
+
+    public ExecutionQueueMetrics getExecutionQueueMetrics() {
+        return executionQueue.metrics();
     }
 
     public List<EventModel> getWorkflowEvents(String workflowId) {
-        return eventRepo.get(workflowId);
+        return eventStore.get(workflowId);
     }
 
     public void registerWorkflowImplementationTypes(Class<? extends RunnableWorkflow>... workflowImplementationClasses) {
 
         Arrays.stream(workflowImplementationClasses)
-                .forEach(workflowImplementationClass -> simpleNameToWorkflowImplType.put(workflowImplementationClass.getSimpleName(), workflowImplementationClass));
-    }
-
-//    private <T extends Class<RunnableWorkflow>> T instrumentClass(T clazz) {
-//        try {
-//            new ByteBuddy()
-//                    .subclass(clazz)
-//                    .defineConstructor(Opcodes.ACC_PUBLIC)
-//                    .withParameters(WorkflowOptions.class)
-//                    .intercept(MethodCall.invoke(Object.class.getConstructor()).andThen(FieldAccessor.ofField("_workflowOptions").setsArgumentAt(0)))
-//                    .defineField("_workflowOptions", WorkflowOptions.class, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL)
-//                    .method(named("execute"))
-//                    .intercept(
-//                            MethodDelegation.to(
-//                                    new WorkflowExecutionInterceptor(workflowOptions, eventRepo, executor)
-//                            )
-//                    )
-//    //                .method(isAnnotatedWith(SignalFunction.class))
-//    //                .intercept(MethodDelegation.to(new WorkflowSignalInterceptor()))
-//                    .make()
-//                    .load(getClass().getClassLoader())
-//                    .getLoaded();
-//        } catch (NoSuchMethodException e) {
-//            throw new RuntimeException(e);
-//        }
-//    }
+                .forEach(workflowImplementationClass -> {
+                    Util.checkSnapshotProgress(workflowImplementationClass);
+                    simpleNameToWorkflowImplType.put(workflowImplementationClass.getSimpleName(), workflowImplementationClass);
+                    Class<? extends RunnableWorkflow> proxyType = workflowImplTypeToProxyType.computeIfAbsent(workflowImplementationClass, this::proxyType);
+                    TypeDescriptor.of(proxyType);
+                });
+    }
+
+    // prefers the subclass woven at compile time, if the workflow was compiled with maestro-processor
+    @SuppressWarnings("unchecked")
+    private Class<? extends RunnableWorkflow> proxyType(Class<?> clazz) {
+        Class<?> wovenType = Util.findGeneratedClass(clazz, WOVEN_WORKFLOW_SUFFIX);
+        return wovenType != null ? (Class<? extends RunnableWorkflow>) wovenType : instrumentClass(clazz);
+    }
+
+    // generated once per workflow type; the interceptors are shared and read the options from the instance
+    private Class<? extends RunnableWorkflow> instrumentClass(Class<?> clazz) {
+        @SuppressWarnings("unchecked")
+        Class<? extends RunnableWorkflow> workflowClass = (Class<? extends RunnableWorkflow>) clazz;
+        return new ByteBuddy()
+                .subclass(workflowClass)
+                .defineField(WORKFLOW_OPTIONS_FIELD, WorkflowOptions.class, Visibility.PRIVATE)
+                .implement(WorkflowInstance.class)
+                .intercept(FieldAccessor.ofField(WORKFLOW_OPTIONS_FIELD))
+                .method(named("execute"))
+                .intercept(MethodDelegation.to(executionInterceptor))
+                .method(isAnnotatedWith(SignalFunction.class))
+                .intercept(MethodDelegation.to(signalMethodInterceptor))
+                .make()
+                .load(getClass().getClassLoader())
+                .getLoaded();
+    }
 
     @Override
     public void registerActivity(Object activity) {
@@ -97,29 +158,97 @@ public class MaestroImpl implements Maestro {
 
 
     public <T extends RunnableWorkflow> T newWorkflow(Class<T> clazz, WorkflowOptions workflowOptions) {
-        if (simpleNameToWorkflowImplType.get(clazz.getSimpleName()) == null) {
+        Class<? extends RunnableWorkflow> proxyType = workflowImplTypeToProxyType.get(clazz);
+        if (proxyType == null) {
             throw new UnregisteredWorkflowException(clazz);
         }
 
-        T instance = Util.createInstance(new ByteBuddy()
-                .subclass(clazz)
-                .method(named("execute"))
-                .intercept(
-                        MethodDelegation.to(
-                                new WorkflowExecutionInterceptor(workflowOptions, eventRepo)
-                        )
-                )
-                .method(isAnnotatedWith(SignalFunction.class))
-                .intercept(MethodDelegation.to(new WorkflowSignalMethodInterceptor(eventRepo, workflowOptions, executor)))
-                .make()
-                .load(getClass().getClassLoader())
-                .getLoaded());
+        @SuppressWarnings("unchecked")
+        T instance = (T) Util.createInstance(proxyType);
+        ((WorkflowInstance) instance).setMaestroWorkflowOptions(workflowOptions);
+        if (instance instanceof WovenWorkflow wovenWorkflow) wovenWorkflow.setMaestroInterceptors(wovenInterceptors);
 
         populateSuperclassAnnotatedFields(instance);
 
         return instance;
+    }
+
+    @Override
+    public void signal(Class<? extends RunnableWorkflow> workflowType, List<Signal> signals) {
+        if (!workflowImplTypeToProxyType.containsKey(workflowType)) {
+            throw new UnregisteredWorkflowException(workflowType);
+        }
+        if (signals.isEmpty()) return;
+
+        TypeDescriptor typeDescriptor = TypeDescriptor.of(workflowType);
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Signal signal : signals) {
+            if (!isSignalFunction(typeDescriptor, signal.signalFunction())) {
+                throw new IllegalArgumentException(signal.signalFunction() + " is not a @SignalFunction of " + workflowType.getSimpleName());
+            }
+            counts.merge(signal.workflowId(), 1, Integer::sum);
+        }
 
+        // the signals of each workflow keep their order within the numbers the batch is given
+        List<EventEntity> events = new ArrayList<>(signals.size());
+        for (Signal signal : signals) {
+            events.add(new EventEntity(
+                    UUID.randomUUID().toString(), signal.workflowId(),
+                    null, null,
+                    Category.SIGNAL, workflowType.getSimpleName(), signal.signalFunction(),
+                    Json.serialize(signal.payload()), Status.RECEIVED, null, null
+            ));
+        }
+        eventStore.saveAllWithNextSequenceNumbers(events);
 
+        // workflows that haven't started yet apply the signals once they do
+        eventStore.getStartedWorkflows(counts.keySet()).values().forEach(this::replayWorkflow);
+    }
+
+    @Override
+    public void startWorkflows(Class<? extends RunnableWorkflow> workflowType, List<WorkflowStart> starts) {
+        if (!workflowImplTypeToProxyType.containsKey(workflowType)) {
+            throw new UnregisteredWorkflowException(workflowType);
+        }
+
+        for (int from = 0; from < starts.size(); from += START_BATCH_SIZE) {
+            List<WorkflowStart> batch = starts.subList(from, Math.min(from + START_BATCH_SIZE, starts.size()));
+
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            batch.forEach(start -> counts.merge(start.options().workflowId(), 1, Integer::sum));
+            Map<String, Long> nextSequenceNumbers = new HashMap<>(eventStore.reserveSequenceNumbers(counts));
+
+            // same event the execution interceptor writes, so the execution finds it in the history and skips it
+            Map<String, WorkflowStart> startsById = new HashMap<>();
+            List<EventEntity> events = new ArrayList<>(batch.size());
+            for (WorkflowStart start : batch) {
+                String workflowId = start.options().workflowId();
+                startsById.putIfAbsent(workflowId, start);
+                events.add(new EventEntity(
+                        UUID.randomUUID().toString(), workflowId,
+                        1L, nextSequenceNumbers.merge(workflowId, 1L, Long::sum) - 1,
+                        Category.WORKFLOW, workflowType.getSimpleName(), "execute",
+                        Json.serializeFirst(new Object[]{start.input()}), Status.STARTED, null, Json.serialize(start.options())
+                ));
+            }
+
+            // workflows started before, or twice in this batch, conflict on their correlation number and are skipped
+            for (EventEntity started : eventStore.saveAllIfAbsent(events)) {
+                WorkflowStart start = startsById.get(started.workflowId());
+                RunnableWorkflow proxy = newWorkflow(workflowType, start.options());
+
+                executionQueue.awaitCapacity();
+                executionQueue.submit(started.workflowId(), () -> proxy.execute(start.input()));
+            }
+        }
+    }
+
+    private static boolean isSignalFunction(TypeDescriptor typeDescriptor, String name) {
+        try {
+            return typeDescriptor.method(name).method().isAnnotationPresent(SignalFunction.class);
+        } catch (NoSuchElementException e) {
+            return false;
+        }
     }
 
     public Class<? extends RunnableWorkflow> getWorkflowImplType(String simpleName) {
@@ -128,10 +257,22 @@ public class MaestroImpl implements Maestro {
 
     @SuppressWarnings("unchecked")
     private <T> T proxyActivity(T instance, ActivityOptions options) {
+        Class<?> activityInterface = Util.getActivityInterface(instance.getClass());
+        InvocationHandler handler = new ActivityInvocationHandler(instance, options, this, eventStore);
+
+        Class<?> wovenType = Util.findGeneratedClass(activityInterface, WOVEN_ACTIVITY_SUFFIX);
+        if (wovenType != null) {
+            try {
+                return (T) wovenType.getConstructor(InvocationHandler.class).newInstance(handler);
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
         return (T) Proxy.newProxyInstance(
                 instance.getClass().getClassLoader(),
-                new Class<?>[]{Util.getActivityInterface(instance.getClass())},
-                new ActivityInvocationHandler(instance, options, this, eventRepo)
+                new Class<?>[]{activityInterface},
+                handler
         );
     }
 
@@ -145,56 +286,63 @@ public class MaestroImpl implements Maestro {
         }
     }
 
-    private void populateAnnotatedFields(Object instance) {
-        Field[] fields = instance.getClass().getDeclaredFields();
-        for (Field field : fields) {
-            if (field.isAnnotationPresent(Activity.class)) {
-                Object activity = typeToActivity.get(field.getType());
-                Util.setField(field, instance, activity);
-            }
-        }
-    }
-
     public void replayWorkflow(EventEntity workflowStartedEvent) {
         Class<? extends RunnableWorkflow> workflowClass = getWorkflowImplType(workflowStartedEvent.className());
-        Method workflowMethod = Util.findWorkflowMethod(workflowClass);
-
-        Type[] paramTypes = workflowMethod.getGenericParameterTypes();
-        Object[] finalArgs = Arrays.stream(paramTypes)
-                .findFirst()
-                .map(paramType -> Json.deserialize(workflowStartedEvent.data(), paramType))
-                .map(deserialized -> new Object[]{deserialized})
-                .orElse(Util.getDefaultArgs(paramTypes.length));
+        Object[] finalArgs = TypeDescriptor.of(workflowClass).workflowMethod().deserializeArguments(workflowStartedEvent.data());
 
         WorkflowOptions workflowOptions = Json.deserialize(workflowStartedEvent.metadata(), WorkflowOptions.class);
-        RunnableWorkflow proxy = newWorkflow(workflowClass, workflowOptions);
 
-        executor.submit(() -> proxy.execute(finalArgs[0]));
+        // always a fresh instance, since the fields of a suspended one already reflect the signals the replay applies
+        executionQueue.submit(workflowOptions.workflowId(), () -> newWorkflow(workflowClass, workflowOptions).execute(finalArgs[0]));
     }
 
     public void applySignals(WorkflowContext workflowContext, Long nextSequenceNumber) {
-        Object workflow = workflowContext.workflow();
-        List<EventEntity> signals = eventRepo.getSignals(workflowContext.workflowId(), nextSequenceNumber);
-        for (EventEntity signal : signals) {
-            Method signalMethod = Arrays.stream(workflow.getClass().getMethods())
-                    .filter(m -> m.getName().equals(signal.functionName()))
-                    .findFirst().get();
+        applySignals(workflowContext.workflow(), eventStore.getSignals(workflowContext.workflowId(), nextSequenceNumber));
+    }
+
+    public void applyReplayedSignals(WorkflowContext workflowContext, Long sequenceNumber) {
+        applySignals(workflowContext.workflow(), workflowContext.history().getSignals(sequenceNumber));
+    }
+
+    // called when the step with correlationNumber begins, so the fields reflect every earlier step
+    public void snapshotIfDue(WorkflowContext workflowContext, Long correlationNumber) {
+        if (workflowContext.staticCorrelationNumber() != null) return;
+
+        Snapshot snapshot = workflowContext.workflow().getClass().getAnnotation(Snapshot.class);
+        if (snapshot == null) return;
+
+        // correlation number 1 is the workflow itself, its steps start at 2
+        long position = correlationNumber - 1;
+        long completedSteps = position - 1;
+        if (completedSteps < 1 || completedSteps % snapshot.everySteps() != 0) return;
+
+        WorkflowSnapshot previous = workflowContext.history().snapshot();
+        if (previous != null && previous.correlationNumber() >= position) return;
 
-            Type[] paramTypes = signalMethod.getGenericParameterTypes();
-            Object[] finalArgs = Arrays.stream(paramTypes)
-                    .findFirst()
-                    .map(paramType -> Json.deserialize(signal.data(), paramType))
-                    .map(deserialized -> new Object[]{deserialized})
-                    .orElse(Util.getDefaultArgs(paramTypes.length));
+        EventEntity completedStep = workflowContext.history().get(position, Status.COMPLETED);
+        if (completedStep == null) completedStep = eventStore.get(workflowContext.workflowId(), position, Status.COMPLETED);
+        if (completedStep == null) return;
+
+        eventStore.saveSnapshot(new WorkflowSnapshot(
+                workflowContext.workflowId(), position, completedStep.sequenceNumber(),
+                Json.serialize(Util.captureWorkflowFields(workflowContext.workflow()))
+        ));
+    }
+
+    private void applySignals(Object workflow, List<EventEntity> signals) {
+        for (EventEntity signal : signals) {
+            MethodDescriptor signalMethod = TypeDescriptor.of(workflow.getClass()).method(signal.functionName());
+            Object[] finalArgs = signalMethod.deserializeArguments(signal.data());
 
             try {
                 WorkflowSignalMethodInterceptor.callSuper.set(true);
                 signalMethod.invoke(workflow, finalArgs);
-                WorkflowSignalMethodInterceptor.callSuper.set(false);
             } catch (RuntimeException e) {
                 throw e;
             } catch (Exception e) {
                 throw new RuntimeException(e);
+            } finally {
+                WorkflowSignalMethodInterceptor.callSuper.remove();
             }
         }
     }
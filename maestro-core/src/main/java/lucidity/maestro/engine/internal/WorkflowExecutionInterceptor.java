@@ -1,16 +1,23 @@
 package lucidity.maestro.engine.internal;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import lucidity.maestro.engine.api.throwable.AbortWorkflowExecutionError;
 import lucidity.maestro.engine.api.workflow.RunnableWorkflow;
+import lucidity.maestro.engine.api.workflow.Snapshot;
 import lucidity.maestro.engine.api.workflow.WorkflowOptions;
 import lucidity.maestro.engine.internal.dto.WorkflowContext;
 import lucidity.maestro.engine.internal.dto.WorkflowContextManager;
+import lucidity.maestro.engine.internal.dto.WorkflowHistory;
 import lucidity.maestro.engine.internal.entity.Category;
 import lucidity.maestro.engine.internal.entity.EventEntity;
 import lucidity.maestro.engine.internal.entity.Status;
+import lucidity.maestro.engine.internal.entity.WorkflowSnapshot;
 import lucidity.maestro.engine.internal.exception.WorkflowCorrelationStatusConflict;
-import lucidity.maestro.engine.internal.repo.EventRepo;
+import lucidity.maestro.engine.internal.metrics.EngineMetrics;
+import lucidity.maestro.engine.internal.repo.EventStore;
 import lucidity.maestro.engine.internal.util.Json;
+import lucidity.maestro.engine.internal.util.Util;
+import lucidity.maestro.engine.internal.worker.WorkflowExecutionQueue;
 import net.bytebuddy.implementation.bind.annotation.Argument;
 import net.bytebuddy.implementation.bind.annotation.RuntimeType;
 import net.bytebuddy.implementation.bind.annotation.Super;
@@ -18,21 +25,25 @@ import net.bytebuddy.implementation.bind.annotation.This;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
 
 public class WorkflowExecutionInterceptor {
 
     private static final Logger logger = LoggerFactory.getLogger(WorkflowExecutionInterceptor.class);
-
-    private final WorkflowOptions options;
-    private final EventRepo eventRepo;
-
-    public WorkflowExecutionInterceptor(WorkflowOptions options, EventRepo eventRepo) {
-
-
-        this.options = options;
-        this.eventRepo = eventRepo;
+    // the workflow fields a snapshot captured, by name
+    private static final TypeReference<Map<String, Object>> SNAPSHOT_STATE = new TypeReference<>() {
+    };
+
+    private final EventStore eventStore;
+    private final WorkflowExecutionQueue executionQueue;
+    private final EngineMetrics metrics;
+
+    public WorkflowExecutionInterceptor(EventStore eventStore, WorkflowExecutionQueue executionQueue, EngineMetrics metrics) {
+        this.eventStore = eventStore;
+        this.executionQueue = executionQueue;
+        this.metrics = metrics;
     }
 
 //    @RuntimeType
@@ -47,39 +58,56 @@ public class WorkflowExecutionInterceptor {
 
     @RuntimeType
     public Object intercept(@Argument(0) @RuntimeType Object arg, @Super RunnableWorkflow zuper, @This RunnableWorkflow currentObject) {
+        return execute(arg, currentObject, zuper::execute);
+    }
+
+    // replays already run in the workflow's lane, a first execution takes it so a signal can't replay it meanwhile
+    Object execute(Object arg, RunnableWorkflow currentObject, Function<Object, Object> superExecute) {
+        WorkflowOptions options = ((WorkflowInstance) currentObject).getMaestroWorkflowOptions();
+        return executionQueue.runInLane(options.workflowId(), () -> execute(arg, currentObject, superExecute, options));
+    }
+
+    private Object execute(Object arg, RunnableWorkflow currentObject, Function<Object, Object> superExecute, WorkflowOptions options) {
         try {
             String input = Json.serializeFirst(new Object[]{arg});
 
-            WorkflowContextManager.set(new WorkflowContext(options.workflowId(), 0L, null, currentObject));
-            Long correlationNumber = WorkflowContextManager.getCorrelationNumber();
+            // both the runtime and the compile-time generated subclasses directly extend the workflow type
+            final String parsedClassName = currentObject.getClass().getSuperclass().getSimpleName();
+            metrics.executionStarted(parsedClassName);
 
-            String className = zuper.getClass().getSimpleName();
-            final String parsedClassName = className.substring(0, className.indexOf('$'));
+            WorkflowHistory history = loadHistory(currentObject, options);
+            WorkflowContextManager.set(new WorkflowContext(options.workflowId(), 0L, null, currentObject, history));
+            Long correlationNumber = WorkflowContextManager.getCorrelationNumber();
 
-            try {
-                eventRepo.saveWithRetry(() -> new EventEntity(
-                        UUID.randomUUID().toString(), options.workflowId(),
-                        correlationNumber, eventRepo.getNextSequenceNumber(options.workflowId()),
-                        Category.WORKFLOW, parsedClassName, "execute",
-                        input, Status.STARTED, null, Json.serialize(options)
-                ));
-            } catch (WorkflowCorrelationStatusConflict e) {
-                logger.debug(e.getMessage());
+            if (history.snapshot() != null) {
+                Util.restoreWorkflowFields(currentObject, Json.deserialize(history.snapshot().state(), SNAPSHOT_STATE));
+                WorkflowContextManager.skipTo(history.snapshot().correlationNumber());
+            } else if (history.get(correlationNumber, Status.STARTED) == null) {
+                try {
+                    eventStore.saveWithRetry(() -> new EventEntity(
+                            UUID.randomUUID().toString(), options.workflowId(),
+                            correlationNumber, eventStore.getNextSequenceNumber(options.workflowId()),
+                            Category.WORKFLOW, parsedClassName, "execute",
+                            input, Status.STARTED, null, Json.serialize(options)
+                    ));
+                } catch (WorkflowCorrelationStatusConflict e) {
+                    logger.debug(e.getMessage());
+                }
             }
 
-            Object output = zuper.execute(arg);
+            Object output = superExecute.apply(arg);
+            // completing the workflow is its last step
+            metrics.stepStarted("workflow", history.get(correlationNumber, Status.COMPLETED) != null);
 
             try {
-                eventRepo.saveWithRetry(() -> new EventEntity(
+                eventStore.saveWithRetry(() -> new EventEntity(
                         UUID.randomUUID().toString(), options.workflowId(),
-                        correlationNumber, eventRepo.getNextSequenceNumber(options.workflowId()),
+                        correlationNumber, eventStore.getNextSequenceNumber(options.workflowId()),
                         Category.WORKFLOW, parsedClassName, "execute",
                         Json.serialize(output), Status.COMPLETED, null, null
                 ));
             } catch (WorkflowCorrelationStatusConflict e) {
                 logger.debug(e.getMessage());
-            } finally {
-                WorkflowContextManager.clear();
             }
 
             return output;
@@ -92,6 +120,32 @@ public class WorkflowExecutionInterceptor {
         } catch (AbortWorkflowExecutionError error) {
             logger.info("execution stopped by catching abort error", error);
             return null;
+        } finally {
+            // aborted executions too, so pooled threads don't carry the context into their next task
+            WorkflowContextManager.clear();
+            metrics.executionEnded();
         }
     }
+
+    private WorkflowHistory loadHistory(RunnableWorkflow currentObject, WorkflowOptions options) {
+        WorkflowSnapshot snapshot = currentObject.getClass().isAnnotationPresent(Snapshot.class)
+                ? eventStore.getSnapshot(options.workflowId())
+                : null;
+
+        if (snapshot == null || !recordsProgress(currentObject, snapshot)) return new WorkflowHistory(eventStore.getHistory(options.workflowId()));
+        return new WorkflowHistory(eventStore.getHistory(options.workflowId(), snapshot.sequenceNumber()), snapshot);
+    }
+
+    // currentObject is still a new instance, so a progress field that kept its value means execute would run the
+    // steps the snapshot already reflects again
+    private boolean recordsProgress(RunnableWorkflow currentObject, WorkflowSnapshot snapshot) {
+        String progress = currentObject.getClass().getAnnotation(Snapshot.class).progress();
+        Object initial = Util.captureWorkflowFields(currentObject).get(progress);
+        Object restored = Json.deserialize(snapshot.state(), SNAPSHOT_STATE).get(progress);
+        if (!Json.serialize(initial).equals(Json.serialize(restored))) return true;
+
+        logger.warn("ignoring the snapshot of workflow with id: {} at correlationNumber: {} because its {} didn't change, replaying its whole history",
+                snapshot.workflowId(), snapshot.correlationNumber(), progress);
+        return false;
+    }
 }
@@ -0,0 +1,12 @@
+package lucidity.maestro.engine.internal;
+
+import lucidity.maestro.engine.api.workflow.WorkflowOptions;
+
+// implemented by the generated workflow subclasses, which are shared by all instances of a workflow type,
+// so the per-instance options live in a field of the instance instead of the interceptors
+public interface WorkflowInstance {
+
+    WorkflowOptions getMaestroWorkflowOptions();
+
+    void setMaestroWorkflowOptions(WorkflowOptions workflowOptions);
+}
@@ -0,0 +1,29 @@
+package lucidity.maestro.engine.internal;
+
+import lucidity.maestro.engine.api.workflow.RunnableWorkflow;
+
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+/**
+ * Entry point of the subclasses generated by maestro-processor, which call into the same interceptors
+ * as the subclasses generated by ByteBuddy at runtime.
+ */
+public class WorkflowInterceptors {
+
+    private final WorkflowExecutionInterceptor executionInterceptor;
+    private final WorkflowSignalMethodInterceptor signalMethodInterceptor;
+
+    WorkflowInterceptors(WorkflowExecutionInterceptor executionInterceptor, WorkflowSignalMethodInterceptor signalMethodInterceptor) {
+        this.executionInterceptor = executionInterceptor;
+        this.signalMethodInterceptor = signalMethodInterceptor;
+    }
+
+    public Object execute(RunnableWorkflow<?, ?> workflow, Object arg, Function<Object, Object> superExecute) {
+        return executionInterceptor.execute(arg, workflow, superExecute);
+    }
+
+    public Object signal(RunnableWorkflow<?, ?> workflow, String methodName, Object arg, Callable<?> superCall) {
+        return signalMethodInterceptor.signal(arg, workflow, superCall, methodName);
+    }
+}
@@ -5,44 +5,36 @@ import lucidity.maestro.engine.api.workflow.WorkflowOptions;
 import lucidity.maestro.engine.internal.entity.Category;
 import lucidity.maestro.engine.internal.entity.EventEntity;
 import lucidity.maestro.engine.internal.entity.Status;
-import lucidity.maestro.engine.internal.repo.EventRepo;
+import lucidity.maestro.engine.internal.repo.EventStore;
 import lucidity.maestro.engine.internal.util.Json;
-import lucidity.maestro.engine.internal.util.Util;
+import lucidity.maestro.engine.internal.worker.SignalCoalescer;
 import net.bytebuddy.implementation.bind.annotation.*;
 
 import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
-import java.util.Arrays;
 import java.util.UUID;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
 
 public class WorkflowSignalMethodInterceptor {
 
     public static final ThreadLocal<Boolean> callSuper = ThreadLocal.withInitial(() -> false);
 
-    private final EventRepo eventRepo;
-    private final WorkflowOptions options;
-    private final ExecutorService executor;
+    private final EventStore eventStore;
+    private final SignalCoalescer signalCoalescer;
+    private final Consumer<EventEntity> replayWorkflow;
 
-    public WorkflowSignalMethodInterceptor(EventRepo eventRepo, WorkflowOptions options, ExecutorService executor) {
-
-        this.eventRepo = eventRepo;
-        this.options = options;
-        this.executor = executor;
+    public WorkflowSignalMethodInterceptor(EventStore eventStore, SignalCoalescer signalCoalescer, Consumer<EventEntity> replayWorkflow) {
+        this.eventStore = eventStore;
+        this.signalCoalescer = signalCoalescer;
+        this.replayWorkflow = replayWorkflow;
     }
 
-    private Method findExecuteMethod(Class clazz) {
-        return Arrays.stream(clazz.getMethods())
-                .filter(method -> "execute".equals(method.getName()))
-                .filter(method -> method.getParameterCount() == 1)
-                .findFirst()
-                .orElseThrow();
+    @RuntimeType
+    public Object intercept(@Argument(0) @RuntimeType Object arg, @This RunnableWorkflow currentObject, @SuperCall Callable<?> zuperCall, @Origin Method method) {
+        return signal(arg, currentObject, zuperCall, method.getName());
     }
 
-    @RuntimeType
-    public Object intercept(@Argument(0) @RuntimeType Object arg, @This RunnableWorkflow currentObject, @Super RunnableWorkflow zuper, @SuperCall Callable<?> zuperCall, @Origin Method method) {
+    Object signal(Object arg, RunnableWorkflow currentObject, Callable<?> zuperCall, String methodName) {
 
         if (callSuper.get()) {
             try {
@@ -52,34 +44,25 @@ public class WorkflowSignalMethodInterceptor {
             }
         }
 
-        String className = zuper.getClass().getSimpleName();
-        final String parsedClassName = className.substring(0, className.indexOf('$'));
-        eventRepo.saveWithRetry(() -> new EventEntity(
+        WorkflowOptions options = ((WorkflowInstance) currentObject).getMaestroWorkflowOptions();
+        final String parsedClassName = currentObject.getClass().getSuperclass().getSimpleName();
+        eventStore.saveWithNextSequenceNumber(new EventEntity(
                 UUID.randomUUID().toString(), options.workflowId(),
-                null, eventRepo.getNextSequenceNumber(options.workflowId()),
-                Category.SIGNAL, parsedClassName, method.getName(),
+                null, null,
+                Category.SIGNAL, parsedClassName, methodName,
                 Json.serialize(arg), Status.RECEIVED, null, null
         ));
 
-        EventEntity existingStartedWorkflow = eventRepo.get(
-                options.workflowId(), Category.WORKFLOW, Status.STARTED
-        );
-
-        if (existingStartedWorkflow != null) {
-            Method workflowMethod = findExecuteMethod(currentObject.getClass());
-
-            Type[] paramTypes = workflowMethod.getGenericParameterTypes();
-            Object[] finalArgs = Arrays.stream(paramTypes)
-                    .findFirst()
-                    .map(paramType -> Json.deserialize(existingStartedWorkflow.data(), paramType))
-                    .map(deserialized -> new Object[]{deserialized})
-                    .orElse(Util.getDefaultArgs(paramTypes.length));
-            workflowMethod.setAccessible(true);
-
-            executor.submit( () -> currentObject.execute(finalArgs[0]));
-        }
+        signalCoalescer.schedule(options.workflowId(), () -> executeIfStarted(options));
         return null;
+    }
 
+    // on a fresh instance rather than the signaled one, whose fields already reflect the signals replayed again
+    private void executeIfStarted(WorkflowOptions options) {
+        EventEntity existingStartedWorkflow = eventStore.get(
+                options.workflowId(), Category.WORKFLOW, Status.STARTED
+        );
 
+        if (existingStartedWorkflow != null) replayWorkflow.accept(existingStartedWorkflow);
     }
 }
@@ -0,0 +1,7 @@
+package lucidity.maestro.engine.internal;
+
+// implemented by the workflow subclasses generated at compile time by maestro-processor
+public interface WovenWorkflow extends WorkflowInstance {
+
+    void setMaestroInterceptors(WorkflowInterceptors interceptors);
+}
@@ -1,11 +1,13 @@
 package lucidity.maestro.engine.internal.config;
 
+import lucidity.maestro.engine.api.metrics.MaestroMetrics;
 import lucidity.maestro.engine.internal.MaestroImpl;
 import lucidity.maestro.engine.internal.http.Server;
-import lucidity.maestro.engine.internal.repo.EventRepo;
+import lucidity.maestro.engine.internal.repo.EventStore;
+import lucidity.maestro.engine.internal.worker.DueTimer;
 import lucidity.maestro.engine.internal.worker.TimedOutWorkflowWorker;
+import lucidity.maestro.engine.internal.worker.WakeupListener;
 
-import javax.sql.DataSource;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Initializer {
@@ -14,14 +16,20 @@ public class Initializer {
 
     private static TimedOutWorkflowWorker timedOutWorkflowWorker;
 
-    public static void initialize(MaestroImpl maestroImpl, EventRepo eventRepo) {
+    public static void initialize(MaestroImpl maestroImpl, EventStore eventStore, TimeoutRecoveryPolicy timeoutRecoveryPolicy,
+                                  WakeupListener wakeupListener, MaestroMetrics metrics) {
         if (configured.get()) return;
 
-        timedOutWorkflowWorker = new TimedOutWorkflowWorker(maestroImpl, eventRepo);
+        timedOutWorkflowWorker = new TimedOutWorkflowWorker(maestroImpl, eventStore, timeoutRecoveryPolicy,
+                wakeupListener != null ? WakeupListener.SAFETY_NET_POLLING_INTERVAL : TimedOutWorkflowWorker.POLLING_INTERVAL);
+        if (wakeupListener != null) {
+            DueTimer dueTimer = new DueTimer(timedOutWorkflowWorker::wakeUp);
+            wakeupListener.register(WakeupListener.TIMEOUT_TOPIC, dueTimer::wakeAt);
+        }
         timedOutWorkflowWorker.startPoll();
 
 
-        Server server = new Server(eventRepo);
+        Server server = new Server(eventStore, metrics);
         server.serve();
 
         configured.set(true);
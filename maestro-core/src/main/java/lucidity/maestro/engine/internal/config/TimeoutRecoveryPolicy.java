@@ -0,0 +1,19 @@
+package lucidity.maestro.engine.internal.config;
+
+import java.time.Duration;
+
+// how often a timed-out workflow is replayed: the n-th attempt is followed by initialBackoff * 2^(n-1), at most maxBackoff
+public record TimeoutRecoveryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+
+    public static final TimeoutRecoveryPolicy DEFAULT = new TimeoutRecoveryPolicy(10, Duration.ofSeconds(1), Duration.ofMinutes(10));
+
+    public TimeoutRecoveryPolicy {
+        if (maxAttempts < 1) throw new IllegalArgumentException("maxAttempts must be positive");
+    }
+
+    public Duration backoff(int attempt) {
+        int doublings = Math.min(attempt - 1, 30);
+        Duration backoff = initialBackoff.multipliedBy(1L << doublings);
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+}
@@ -0,0 +1,10 @@
+package lucidity.maestro.engine.internal.dto;
+
+import java.time.Duration;
+
+public record ExecutionQueueMetrics(
+        int capacity, int queueDepth, int running,
+        long accepted, long merged, long deferred,
+        Duration averageWait, Duration maxWait
+) {
+}
@@ -0,0 +1,7 @@
+package lucidity.maestro.engine.internal.dto;
+
+import lucidity.maestro.engine.internal.entity.EventEntity;
+
+// a timed-out STARTED event claimed by this node for its attempt-th replay
+public record TimeoutClaim(EventEntity event, int attempt) {
+}
@@ -4,10 +4,15 @@ public record WorkflowContext(
         String workflowId,
         Long mutableCorrelationNumber,
         Long staticCorrelationNumber,
-        Object workflow
+        Object workflow,
+        WorkflowHistory history
 ) {
 
     public WorkflowContext incrementCorrelationNumber() {
-        return new WorkflowContext(workflowId, mutableCorrelationNumber + 1, staticCorrelationNumber, workflow);
+        return new WorkflowContext(workflowId, mutableCorrelationNumber + 1, staticCorrelationNumber, workflow, history);
+    }
+
+    public WorkflowContext withCorrelationNumber(Long correlationNumber) {
+        return new WorkflowContext(workflowId, correlationNumber, staticCorrelationNumber, workflow, history);
     }
 }
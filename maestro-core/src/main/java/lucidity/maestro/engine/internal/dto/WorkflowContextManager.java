@@ -18,6 +18,11 @@ public class WorkflowContextManager {
         workflowContextThreadLocal.set(context);
     }
 
+    // the next call to getCorrelationNumber returns correlationNumber + 1
+    public static void skipTo(Long correlationNumber) {
+        workflowContextThreadLocal.set(workflowContextThreadLocal.get().withCorrelationNumber(correlationNumber));
+    }
+
     public static void clear() {
         workflowContextThreadLocal.remove();
     }
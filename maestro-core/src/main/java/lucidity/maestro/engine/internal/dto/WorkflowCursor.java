@@ -0,0 +1,26 @@
+package lucidity.maestro.engine.internal.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// position after the last workflow of a page, which is ordered by start timestamp and then workflow id, newest first
+public record WorkflowCursor(Instant startTimestamp, String workflowId) {
+
+    public String encode() {
+        String position = startTimestamp + "|" + workflowId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static WorkflowCursor decode(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf('|');
+            if (separator < 0) throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            return new WorkflowCursor(Instant.parse(position.substring(0, separator)), position.substring(separator + 1));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package lucidity.maestro.engine.internal.dto;
+
+import lucidity.maestro.engine.internal.entity.Category;
+import lucidity.maestro.engine.internal.entity.EventEntity;
+import lucidity.maestro.engine.internal.entity.Status;
+import lucidity.maestro.engine.internal.entity.WorkflowSnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot of a workflow's events, loaded once per execution so that replayed steps
+ * can be answered from memory instead of querying the event table for every step.
+ * Events written after the snapshot was taken are not visible here; callers fall back
+ * to the repository for those.
+ */
+public class WorkflowHistory {
+
+    private static final WorkflowHistory EMPTY = new WorkflowHistory(List.of());
+
+    private final List<EventEntity> events;
+    private final Map<CorrelationKey, EventEntity> eventsByCorrelation;
+    private final WorkflowSnapshot snapshot;
+
+    public WorkflowHistory(List<EventEntity> events) {
+        this(events, null);
+    }
+
+    // with a snapshot, events only holds what was recorded after the snapshot's sequence number
+    public WorkflowHistory(List<EventEntity> events, WorkflowSnapshot snapshot) {
+        this.events = Collections.unmodifiableList(new ArrayList<>(events));
+        this.eventsByCorrelation = indexByCorrelation(events);
+        this.snapshot = snapshot;
+    }
+
+    public static WorkflowHistory empty() {
+        return EMPTY;
+    }
+
+    public EventEntity get(Long correlationNumber, Status status) {
+        return eventsByCorrelation.get(new CorrelationKey(correlationNumber, status));
+    }
+
+    public List<EventEntity> events() {
+        return events;
+    }
+
+    public WorkflowSnapshot snapshot() {
+        return snapshot;
+    }
+
+    // mirrors SqlQueries.SELECT_SIGNALS: signals received after the previous completed event and before sequenceNumber
+    public List<EventEntity> getSignals(Long sequenceNumber) {
+        long previousCompleted = 0L;
+        for (EventEntity event : events) {
+            if (event.sequenceNumber() >= sequenceNumber) break;
+            if (event.status() == Status.COMPLETED) previousCompleted = event.sequenceNumber();
+        }
+
+        List<EventEntity> signals = new ArrayList<>();
+        for (EventEntity event : events) {
+            if (event.sequenceNumber() >= sequenceNumber) break;
+            if (event.category() == Category.SIGNAL && event.sequenceNumber() > previousCompleted) signals.add(event);
+        }
+        return signals;
+    }
+
+    private static Map<CorrelationKey, EventEntity> indexByCorrelation(List<EventEntity> events) {
+        Map<CorrelationKey, EventEntity> index = new HashMap<>();
+        for (EventEntity event : events) {
+            if (event.category() == Category.SIGNAL) continue;
+            index.putIfAbsent(new CorrelationKey(event.correlationNumber(), event.status()), event);
+        }
+        return index;
+    }
+
+    private record CorrelationKey(Long correlationNumber, Status status) {
+    }
+}
@@ -0,0 +1,17 @@
+package lucidity.maestro.engine.internal.dto;
+
+import lucidity.maestro.engine.internal.entity.WorkflowModel;
+
+import java.util.List;
+
+// nextCursor is null on the last page
+public record WorkflowPage(List<WorkflowModel> workflows, String nextCursor) {
+
+    public static WorkflowPage of(List<WorkflowModel> workflows, int limit) {
+        if (workflows.size() <= limit) return new WorkflowPage(workflows, null);
+
+        List<WorkflowModel> page = workflows.subList(0, limit);
+        WorkflowModel last = page.get(limit - 1);
+        return new WorkflowPage(List.copyOf(page), new WorkflowCursor(last.startTimestamp(), last.workflowId()).encode());
+    }
+}
@@ -0,0 +1,21 @@
+package lucidity.maestro.engine.internal.dto;
+
+import lucidity.maestro.engine.internal.entity.Status;
+
+import java.time.Instant;
+
+// filters left null match every workflow; startedAfter is inclusive and startedBefore exclusive
+public record WorkflowQuery(Status status, String className, Instant startedAfter, Instant startedBefore,
+                            WorkflowCursor after, int limit) {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    public WorkflowQuery {
+        if (limit < 1 || limit > MAX_LIMIT) throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+    }
+
+    public static WorkflowQuery firstPage(int limit) {
+        return new WorkflowQuery(null, null, null, null, null, limit);
+    }
+}
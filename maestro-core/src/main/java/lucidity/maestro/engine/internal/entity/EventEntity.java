@@ -4,4 +4,9 @@ public record EventEntity(String id, String workflowId, Long correlationNumber,
                           Long sequenceNumber, Category category, String className,
                           String functionName, String data, Status status,
                           String timestamp, String metadata) {
+
+    public EventEntity withSequenceNumber(Long sequenceNumber) {
+        return new EventEntity(id, workflowId, correlationNumber, sequenceNumber, category, className,
+                functionName, data, status, timestamp, metadata);
+    }
 }
@@ -2,6 +2,7 @@ package lucidity.maestro.engine.internal.entity;
 
 import java.time.Instant;
 
+// correlationNumber and sequenceNumber are those of the started event, so live history messages can be merged in
 public record EventModel(String workflowId, Category category, String className, String functionName,
-                         Instant startTimestamp, Instant endTimestamp, String input, String output) {
+                         Long correlationNumber, Long sequenceNumber, Instant startTimestamp, Instant endTimestamp, String input, String output) {
 }
@@ -2,6 +2,6 @@ package lucidity.maestro.engine.internal.entity;
 
 import java.time.Instant;
 
-public record WorkflowModel(String workflowId, String className, String functionName,
-                            Instant startTimestamp, Instant endTimestamp, String input, String output) {
+public record WorkflowModel(String workflowId, String className, String functionName, Status status,
+                            Instant startTimestamp, Instant endTimestamp, String input, String output, long eventCount) {
 }
@@ -0,0 +1,4 @@
+package lucidity.maestro.engine.internal.entity;
+
+public record WorkflowSnapshot(String workflowId, Long correlationNumber, Long sequenceNumber, String state) {
+}
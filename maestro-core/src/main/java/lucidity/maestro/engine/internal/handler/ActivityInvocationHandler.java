@@ -8,17 +8,17 @@ import lucidity.maestro.engine.internal.dto.WorkflowContextManager;
 import lucidity.maestro.engine.internal.entity.Category;
 import lucidity.maestro.engine.internal.entity.EventEntity;
 import lucidity.maestro.engine.internal.entity.Status;
-import lucidity.maestro.engine.internal.repo.EventRepo;
+import lucidity.maestro.engine.internal.repo.EventStore;
 import lucidity.maestro.engine.internal.exception.WorkflowCorrelationStatusConflict;
 import lucidity.maestro.engine.internal.util.Json;
+import lucidity.maestro.engine.internal.util.MethodDescriptor;
+import lucidity.maestro.engine.internal.util.TypeDescriptor;
 import lucidity.maestro.engine.internal.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.lang.reflect.Type;
-import java.util.Arrays;
 import java.util.UUID;
 
 public class ActivityInvocationHandler implements InvocationHandler {
@@ -27,35 +27,56 @@ public class ActivityInvocationHandler implements InvocationHandler {
     private final ActivityOptions options;
     private final MaestroImpl maestroImpl;
 
-    private final EventRepo eventRepo;
+    private final EventStore eventStore;
+    private final TypeDescriptor targetDescriptor;
 
-    public ActivityInvocationHandler(Object target, ActivityOptions options, MaestroImpl maestroImpl, EventRepo eventRepo) {
+    public ActivityInvocationHandler(Object target, ActivityOptions options, MaestroImpl maestroImpl, EventStore eventStore) {
 
         this.target = target;
+        this.targetDescriptor = TypeDescriptor.of(target.getClass());
         this.options = options;
         this.maestroImpl = maestroImpl;
-        this.eventRepo = eventRepo;
+        this.eventStore = eventStore;
     }
 
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
         if (Util.shouldSkip(method)) return method.invoke(target, args);
 
+        MethodDescriptor descriptor = targetDescriptor.method(method);
+
         WorkflowContext workflowContext = WorkflowContextManager.get();
         Long correlationNumber = WorkflowContextManager.getCorrelationNumber();
 
-        EventEntity existingCompletedActivity = eventRepo.get(workflowContext.workflowId(), correlationNumber, Status.COMPLETED);
+        EventEntity existingCompletedActivity = workflowContext.history().get(correlationNumber, Status.COMPLETED);
+        maestroImpl.metrics().stepStarted("activity", existingCompletedActivity != null);
+
+        maestroImpl.snapshotIfDue(workflowContext, correlationNumber);
 
         if (existingCompletedActivity != null) {
-            maestroImpl.applySignals(workflowContext, existingCompletedActivity.sequenceNumber());
-            if (method.getReturnType().equals(Void.TYPE)) return existingCompletedActivity.data();
-            return Json.deserialize(existingCompletedActivity.data(), method.getGenericReturnType());
+            maestroImpl.applyReplayedSignals(workflowContext, existingCompletedActivity.sequenceNumber());
+            if (descriptor.returnsVoid()) return existingCompletedActivity.data();
+            return descriptor.deserializeReturnValue(existingCompletedActivity.data());
         }
 
+        EventEntity startedActivity = startActivity(workflowContext, correlationNumber, method, args);
+
+        Object[] finalArgs = descriptor.deserializeArguments(startedActivity.data());
+        Object output = descriptor.invoke(target, finalArgs);
+
+        applySignalsAndCompleteActivity(workflowContext, correlationNumber, target, method, output);
+
+        return output;
+    }
+
+    private EventEntity startActivity(WorkflowContext workflowContext, Long correlationNumber, Method method, Object[] args) {
+        EventEntity existingStartedActivity = workflowContext.history().get(correlationNumber, Status.STARTED);
+        if (existingStartedActivity != null) return existingStartedActivity;
+
         try {
-            eventRepo.saveWithRetry(() -> new EventEntity(
+            eventStore.saveWithRetry(() -> new EventEntity(
                     UUID.randomUUID().toString(), workflowContext.workflowId(),
-                    correlationNumber, eventRepo.getNextSequenceNumber(workflowContext.workflowId()),
+                    correlationNumber, eventStore.getNextSequenceNumber(workflowContext.workflowId()),
                     Category.ACTIVITY, target.getClass().getSimpleName(), method.getName(),
                     Json.serializeFirst(args), Status.STARTED, null, Json.serialize(options)
             ));
@@ -63,20 +84,7 @@ public class ActivityInvocationHandler implements InvocationHandler {
             logger.debug(e.getMessage());
         }
 
-        EventEntity existingStartedActivity = eventRepo.get(workflowContext.workflowId(), correlationNumber, Status.STARTED);
-
-        Type[] paramTypes = method.getGenericParameterTypes();
-        Object[] finalArgs = Arrays.stream(paramTypes)
-                .findFirst()
-                .map(paramType -> Json.deserialize(existingStartedActivity.data(), paramType))
-                .map(deserialized -> new Object[]{deserialized})
-                .orElse(Util.getDefaultArgs(paramTypes.length));
-
-        Object output = method.invoke(target, finalArgs);
-
-        applySignalsAndCompleteActivity(workflowContext, correlationNumber, target, method, output);
-
-        return output;
+        return eventStore.get(workflowContext.workflowId(), correlationNumber, Status.STARTED);
     }
 
     private void applySignalsAndCompleteActivity(
@@ -84,8 +92,8 @@ public class ActivityInvocationHandler implements InvocationHandler {
             Object target, Method method, Object output
     ) {
         try {
-            eventRepo.saveWithRetry(() -> {
-                Long nextSequenceNumber = eventRepo.getNextSequenceNumber(workflowContext.workflowId());
+            eventStore.saveWithRetry(() -> {
+                Long nextSequenceNumber = eventStore.getNextSequenceNumber(workflowContext.workflowId());
 
                 EventEntity eventEntity = new EventEntity(
                         UUID.randomUUID().toString(), workflowContext.workflowId(),
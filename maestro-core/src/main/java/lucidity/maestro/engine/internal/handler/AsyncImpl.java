@@ -13,7 +13,8 @@ public class AsyncImpl {
 
         WorkflowContext newWorkflowContext = new WorkflowContext(
                 existingWorkflowContext.workflowId(), null,
-                WorkflowContextManager.getCorrelationNumber(), existingWorkflowContext.workflow()
+                WorkflowContextManager.getCorrelationNumber(), existingWorkflowContext.workflow(),
+                existingWorkflowContext.history()
         );
 
 
@@ -8,7 +8,7 @@ import lucidity.maestro.engine.internal.entity.EventEntity;
 import lucidity.maestro.engine.internal.exception.WorkflowCorrelationStatusConflict;
 import lucidity.maestro.engine.internal.entity.Category;
 import lucidity.maestro.engine.internal.entity.Status;
-import lucidity.maestro.engine.internal.repo.EventRepo;
+import lucidity.maestro.engine.internal.repo.EventStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,28 +18,31 @@ import java.util.function.Supplier;
 public class Await {
     private static final Logger logger = LoggerFactory.getLogger(Await.class);
     private final MaestroImpl maestroImpl;
-    private final EventRepo eventRepo;
+    private final EventStore eventStore;
 
-    public Await(MaestroImpl maestroImpl, EventRepo eventRepo) {
+    public Await(MaestroImpl maestroImpl, EventStore eventStore) {
 
         this.maestroImpl = maestroImpl;
-        this.eventRepo = eventRepo;
+        this.eventStore = eventStore;
     }
 
     public void await(Supplier<Boolean> condition) {
         WorkflowContext workflowContext = WorkflowContextManager.get();
         Long correlationNumber = WorkflowContextManager.getCorrelationNumber();
 
-        EventEntity existingCompletedAwait = eventRepo.get(workflowContext.workflowId(), correlationNumber, Status.COMPLETED);
+        EventEntity existingCompletedAwait = workflowContext.history().get(correlationNumber, Status.COMPLETED);
+        maestroImpl.metrics().stepStarted("await", existingCompletedAwait != null);
+
+        maestroImpl.snapshotIfDue(workflowContext, correlationNumber);
         if (existingCompletedAwait != null) {
-            maestroImpl.applySignals(workflowContext, existingCompletedAwait.sequenceNumber());
+            maestroImpl.applyReplayedSignals(workflowContext, existingCompletedAwait.sequenceNumber());
             return;
         }
 
         try {
-            eventRepo.saveWithRetry(() -> new EventEntity(
+            eventStore.saveWithRetry(() -> new EventEntity(
                     UUID.randomUUID().toString(), workflowContext.workflowId(),
-                    correlationNumber, eventRepo.getNextSequenceNumber(workflowContext.workflowId()),
+                    correlationNumber, eventStore.getNextSequenceNumber(workflowContext.workflowId()),
                     Category.AWAIT, null, null,
                     null, Status.STARTED, null, null
             ));
@@ -47,23 +50,28 @@ public class Await {
             logger.debug(e.getMessage());
         }
 
-        Long nextSequenceNumber = eventRepo.getNextSequenceNumber(workflowContext.workflowId());
+        Long nextSequenceNumber = eventStore.getNextSequenceNumber(workflowContext.workflowId());
         maestroImpl.applySignals(workflowContext, nextSequenceNumber);
 
         if (!condition.get()) {
-            eventRepo.saveWithRetry(() -> new EventEntity(
-                    UUID.randomUUID().toString(), workflowContext.workflowId(),
-                    correlationNumber, eventRepo.getNextSequenceNumber(workflowContext.workflowId()),
-                    Category.AWAIT, null, null,
-                    null, Status.UNSATISFIED, null, null
-            ));
+            // recorded already if an earlier signal left the condition unsatisfied too
+            try {
+                eventStore.saveWithRetry(() -> new EventEntity(
+                        UUID.randomUUID().toString(), workflowContext.workflowId(),
+                        correlationNumber, eventStore.getNextSequenceNumber(workflowContext.workflowId()),
+                        Category.AWAIT, null, null,
+                        null, Status.UNSATISFIED, null, null
+                ));
+            } catch (WorkflowCorrelationStatusConflict e) {
+                logger.debug(e.getMessage());
+            }
 
             throw new AbortWorkflowExecutionError("Abandoning workflow execution because of await condition wasn't satisfied " +
                     "with workflowId: " + workflowContext.workflowId() + ", correlationNumber " + correlationNumber);
         }
 
         try {
-            eventRepo.saveWithRetry(() -> new EventEntity(
+            eventStore.saveWithRetry(() -> new EventEntity(
                     UUID.randomUUID().toString(), workflowContext.workflowId(),
                     correlationNumber, nextSequenceNumber, Category.AWAIT,
                     null, null, null,
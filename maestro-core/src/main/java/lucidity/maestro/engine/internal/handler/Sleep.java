@@ -5,14 +5,18 @@ import com.github.kagkarlsson.scheduler.task.helper.OneTimeTask;
 import com.github.kagkarlsson.scheduler.task.helper.Tasks;
 import lucidity.maestro.engine.api.throwable.AbortWorkflowExecutionError;
 import lucidity.maestro.engine.internal.MaestroImpl;
+import lucidity.maestro.engine.internal.config.ExecutorConfiguration;
 import lucidity.maestro.engine.internal.dto.WorkflowContext;
 import lucidity.maestro.engine.internal.dto.WorkflowContextManager;
 import lucidity.maestro.engine.internal.entity.Category;
 import lucidity.maestro.engine.internal.entity.EventEntity;
 import lucidity.maestro.engine.internal.entity.Status;
 import lucidity.maestro.engine.internal.exception.WorkflowCorrelationStatusConflict;
-import lucidity.maestro.engine.internal.repo.EventRepo;
+import lucidity.maestro.engine.internal.repo.EventStore;
 import lucidity.maestro.engine.internal.util.Json;
+import lucidity.maestro.engine.internal.worker.DueTimer;
+import lucidity.maestro.engine.internal.worker.TimingWheel;
+import lucidity.maestro.engine.internal.worker.WakeupListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,35 +24,55 @@ import javax.sql.DataSource;
 import java.io.Serializable;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 public class Sleep {
     private static final Logger logger = LoggerFactory.getLogger(Sleep.class);
+    private static final Duration POLLING_INTERVAL = Duration.ofSeconds(1);
+    // shorter sleeps expire on the timing wheel of the node that started them
+    private static final Duration SHORT_SLEEP_THRESHOLD = Duration.ofMinutes(1);
+    // the scheduler completes a short sleep this long after it was due, should its node have gone down
+    private static final Duration BACKSTOP_DELAY = Duration.ofSeconds(30);
     private final OneTimeTask<SleepData> task = initializeTask();
     private final Scheduler scheduler;
+    private final ScheduledExecutorService inMemoryScheduler;
+    private final TimingWheel<SleepData> timingWheel = new TimingWheel<>(this::completeSleeps);
     private final MaestroImpl maestroImpl;
-    private final EventRepo eventRepo;
+    private final EventStore eventStore;
 
-    public Sleep(MaestroImpl maestroImpl, EventRepo eventRepo, DataSource dataSource) {
-        this.scheduler = this.initializeScheduler(dataSource);
+    // without a data source, sleeps are only tracked in memory and don't survive a restart
+    public Sleep(MaestroImpl maestroImpl, EventStore eventStore, DataSource dataSource, WakeupListener wakeupListener) {
+        this.scheduler = dataSource != null ? this.initializeScheduler(dataSource, wakeupListener) : null;
+        this.inMemoryScheduler = dataSource != null ? null : Executors.newSingleThreadScheduledExecutor(ExecutorConfiguration.daemonThreads("maestro-sleep"));
         this.maestroImpl = maestroImpl;
-        this.eventRepo = eventRepo;
+        this.eventStore = eventStore;
     }
 
     public void sleep(Duration duration) {
         WorkflowContext workflowContext = WorkflowContextManager.get();
         Long correlationNumber = WorkflowContextManager.getCorrelationNumber();
 
-        EventEntity existingCompletedSleep = eventRepo.get(workflowContext.workflowId(), correlationNumber, Status.COMPLETED);
+        EventEntity existingCompletedSleep = workflowContext.history().get(correlationNumber, Status.COMPLETED);
+        maestroImpl.metrics().stepStarted("sleep", existingCompletedSleep != null);
+
+        maestroImpl.snapshotIfDue(workflowContext, correlationNumber);
         if (existingCompletedSleep != null) {
-            maestroImpl.applySignals(workflowContext, existingCompletedSleep.sequenceNumber());
+            maestroImpl.applyReplayedSignals(workflowContext, existingCompletedSleep.sequenceNumber());
             return;
         }
 
         try {
-            eventRepo.saveWithRetry(() -> new EventEntity(
+            eventStore.saveWithRetry(() -> new EventEntity(
                     UUID.randomUUID().toString(), workflowContext.workflowId(),
-                    correlationNumber, eventRepo.getNextSequenceNumber(workflowContext.workflowId()),
+                    correlationNumber, eventStore.getNextSequenceNumber(workflowContext.workflowId()),
                     Category.SLEEP, null, null,
                     Json.serialize(duration), Status.STARTED, null, null
             ));
@@ -56,18 +80,55 @@ public class Sleep {
             logger.debug(e.getMessage());
         }
 
-        String id = workflowContext.workflowId() + "-" + correlationNumber;
-        scheduler.schedule(task.instance(id, new SleepData(workflowContext.workflowId(), correlationNumber)), Instant.now().plus(duration));
+        schedule(new SleepData(workflowContext.workflowId(), correlationNumber), duration);
 
         WorkflowContextManager.clear();
         throw new AbortWorkflowExecutionError("Scheduled Sleep");
     }
 
+    private void schedule(SleepData sleepData, Duration duration) {
+        boolean shortSleep = duration.compareTo(SHORT_SLEEP_THRESHOLD) < 0;
+        if (shortSleep) timingWheel.add(duration, sleepData);
+
+        if (scheduler == null) {
+            if (shortSleep) return;
+            inMemoryScheduler.schedule(() -> completeSleep(sleepData.workflowId(), sleepData.correlationNumber()),
+                    duration.toMillis(), TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        String id = sleepData.workflowId() + "-" + sleepData.correlationNumber();
+        Instant executionTime = Instant.now().plus(duration);
+        scheduler.schedule(task.instance(id, sleepData), shortSleep ? executionTime.plus(BACKSTOP_DELAY) : executionTime);
+    }
+
+    // one write completes every sleep that expired in the same tick
+    private void completeSleeps(List<SleepData> sleeps) {
+        Map<String, Integer> counts = new HashMap<>();
+        sleeps.forEach(sleepData -> counts.merge(sleepData.workflowId(), 1, Integer::sum));
+        Map<String, Long> nextSequenceNumbers = new HashMap<>(eventStore.reserveSequenceNumbers(counts));
+
+        List<EventEntity> completions = sleeps.stream()
+                .map(sleepData -> new EventEntity(
+                        UUID.randomUUID().toString(), sleepData.workflowId(),
+                        sleepData.correlationNumber(), nextSequenceNumbers.merge(sleepData.workflowId(), 1L, Long::sum) - 1,
+                        Category.SLEEP, null, null, null,
+                        Status.COMPLETED, null, null
+                ))
+                .toList();
+
+        // a sleep completed already was replayed by whoever completed it
+        Set<String> workflowIds = eventStore.saveAllIfAbsent(completions).stream()
+                .map(EventEntity::workflowId)
+                .collect(Collectors.toSet());
+        eventStore.getStartedWorkflows(workflowIds).values().forEach(maestroImpl::replayWorkflow);
+    }
+
     private void completeSleep(String workflowId, Long correlationNumber) {
-        Long nextSequenceNumber = eventRepo.getNextSequenceNumber(workflowId);
+        Long nextSequenceNumber = eventStore.getNextSequenceNumber(workflowId);
 
         try {
-            eventRepo.saveWithRetry(() -> new EventEntity(
+            eventStore.saveWithRetry(() -> new EventEntity(
                     UUID.randomUUID().toString(), workflowId,
                     correlationNumber, nextSequenceNumber, Category.SLEEP,
                     null, null, null,
@@ -77,7 +138,7 @@ public class Sleep {
             logger.debug(e.getMessage());
         }
 
-        EventEntity existingStartedWorkflow = eventRepo.get(
+        EventEntity existingStartedWorkflow = eventStore.get(
                 workflowId, Category.WORKFLOW, Status.STARTED
         );
 
@@ -87,21 +148,32 @@ public class Sleep {
     private OneTimeTask<SleepData> initializeTask() {
         return Tasks.oneTime("generic-task", SleepData.class)
                 .execute((inst, ctx) -> {
-                    logger.info("completing sleep");
+                    maestroImpl.metrics().schedulerLag(Duration.between(ctx.getExecution().executionTime, Instant.now()));
                     SleepData sleepData = inst.getData();
+                    if (eventStore.get(sleepData.workflowId(), sleepData.correlationNumber(), Status.COMPLETED) != null) {
+                        logger.debug("sleep already completed on its timing wheel");
+                        return;
+                    }
+                    logger.info("completing sleep");
                     completeSleep(sleepData.workflowId(), sleepData.correlationNumber());
                 });
     }
 
-    private Scheduler initializeScheduler(DataSource dataSource) {
+    private Scheduler initializeScheduler(DataSource dataSource, WakeupListener wakeupListener) {
+        // with wakeups, tasks are picked up when they're due on any node and polling is only a safety net
         Scheduler scheduler = Scheduler
                 .create(dataSource, task)
-                .pollingInterval(Duration.ofSeconds(1))
+                .pollingInterval(wakeupListener != null ? WakeupListener.SAFETY_NET_POLLING_INTERVAL : POLLING_INTERVAL)
                 .registerShutdownHook()
                 .build();
 
         scheduler.start();
 
+        if (wakeupListener != null) {
+            DueTimer dueTimer = new DueTimer(scheduler::triggerCheckForDueExecutions);
+            wakeupListener.register(WakeupListener.SCHEDULER_TOPIC, dueTimer::wakeAt);
+        }
+
         return scheduler;
     }
 
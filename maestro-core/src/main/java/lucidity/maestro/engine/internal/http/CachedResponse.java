@@ -0,0 +1,80 @@
+package lucidity.maestro.engine.internal.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+// a response body held in memory with its compressed variants; gzip and brotli are null when not worth compressing
+record CachedResponse(byte[] identity, byte[] gzip, byte[] brotli, String contentType, String etag, Instant lastModified,
+                      boolean immutable) {
+
+    // computes the gzip variant and the ETag, compressing at the slowest level since it happens once per body
+    static CachedResponse of(byte[] identity, String contentType, Instant lastModified, boolean immutable) {
+        byte[] gzip = gzip(identity);
+        return new CachedResponse(identity, gzip.length < identity.length ? gzip : null, null, contentType,
+                etag(identity), lastModified, immutable);
+    }
+
+    String cacheControl() {
+        return immutable ? "public, max-age=31536000, immutable" : "no-cache";
+    }
+
+    String lastModifiedHeader() {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(lastModified.atOffset(ZoneOffset.UTC));
+    }
+
+    boolean compressible() {
+        return gzip != null || brotli != null;
+    }
+
+    long size() {
+        return identity.length + (gzip != null ? gzip.length : 0) + (brotli != null ? brotli.length : 0);
+    }
+
+    // compressed variants carry the weak form of the ETag, and either form revalidates any of them
+    boolean matches(List<String> ifNoneMatch) {
+        return ifNoneMatch.stream()
+                .flatMap(header -> Stream.of(header.split(",")))
+                .map(String::trim)
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(etag));
+    }
+
+    boolean notModifiedSince(String ifModifiedSince) {
+        try {
+            Instant since = DateTimeFormatter.RFC_1123_DATE_TIME.parse(ifModifiedSince, Instant::from);
+            return !lastModified.isAfter(since);
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed) {{ def.setLevel(Deflater.BEST_COMPRESSION); }}) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    static String etag(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
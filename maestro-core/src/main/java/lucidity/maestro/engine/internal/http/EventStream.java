@@ -0,0 +1,197 @@
+package lucidity.maestro.engine.internal.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import lucidity.maestro.engine.internal.config.ExecutorConfiguration;
+import lucidity.maestro.engine.internal.entity.Category;
+import lucidity.maestro.engine.internal.entity.EventEntity;
+import lucidity.maestro.engine.internal.entity.Status;
+import lucidity.maestro.engine.internal.repo.EventFeed;
+import lucidity.maestro.engine.internal.util.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Server-sent events for the events this node appends: clients following every workflow get a {@code workflow}
+ * message when one starts or ends, clients following a single workflow get a {@code history} message for each of
+ * its events. A single thread serializes each message once and hands it
+ * to every client's queue, so clients neither query the store nor hold an HTTP server thread while connected.
+ * <p>
+ * Messages queued while the broadcaster falls behind by more than {@link #BACKLOG} are dropped; clients recover by
+ * fetching the workflow again. A client whose own queue fills up, because it stopped reading, is disconnected so
+ * it can't hold up the others.
+ */
+class EventStream {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventStream.class);
+
+    private static final int BACKLOG = 10_000;
+    private static final int CLIENT_BACKLOG = 1_000;
+    private static final long HEARTBEAT_MILLIS = TimeUnit.SECONDS.toMillis(15);
+    private static final byte[] HEARTBEAT = ": heartbeat\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final BlockingQueue<EventEntity> backlog = new ArrayBlockingQueue<>(BACKLOG);
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(ExecutorConfiguration.daemonThreads("maestro-event-stream"));
+    // one busy thread per client at most, only while it has messages to write
+    private final ExecutorService writers = Executors.newCachedThreadPool(ExecutorConfiguration.daemonThreads("maestro-event-stream-writer"));
+
+    EventStream(EventFeed feed) {
+        feed.subscribe(this::enqueue);
+        executor.submit(this::broadcast);
+    }
+
+    // keeps the exchange open after returning, the client's writer writes to it from now on
+    void connect(HttpExchange exchange, String workflowId) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        exchange.getResponseBody().write(HEARTBEAT);
+        exchange.getResponseBody().flush();
+
+        clients.add(new Client(exchange, workflowId));
+    }
+
+    private void enqueue(List<EventEntity> events) {
+        if (clients.isEmpty()) return;
+
+        for (EventEntity event : events) {
+            if (!backlog.offer(event)) {
+                logger.debug("event stream backlog full, dropping event of workflow with id: {}", event.workflowId());
+            }
+        }
+    }
+
+    private void broadcast() {
+        List<EventEntity> events = new ArrayList<>();
+        long lastWrite = System.currentTimeMillis();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                EventEntity first = backlog.poll(HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    events.add(first);
+                    backlog.drainTo(events);
+                    events.forEach(this::send);
+                    events.clear();
+                    lastWrite = System.currentTimeMillis();
+                } else if (System.currentTimeMillis() - lastWrite >= HEARTBEAT_MILLIS) {
+                    // also finds clients that went away while nothing happened
+                    clients.forEach(client -> queue(client, HEARTBEAT));
+                    lastWrite = System.currentTimeMillis();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                logger.error("failed to broadcast events", e);
+            }
+        }
+    }
+
+    private void send(EventEntity event) {
+        byte[] history = null;
+        byte[] workflow = event.category() == Category.WORKFLOW
+                ? message("workflow", new WorkflowMessage(event.workflowId(), event.className(), event.functionName(),
+                event.status(), timestamp(event), event.data()))
+                : null;
+
+        for (Client client : clients) {
+            if (client.workflowId == null) {
+                if (workflow != null) queue(client, workflow);
+            } else if (client.workflowId.equals(event.workflowId())) {
+                if (history == null) history = history(event);
+                queue(client, history);
+            }
+        }
+    }
+
+    private static byte[] history(EventEntity event) {
+        return message("history", new HistoryMessage(
+                event.workflowId(), event.category(), event.status(), event.className(), event.functionName(),
+                event.correlationNumber(), event.sequenceNumber(), timestamp(event), event.data()
+        ));
+    }
+
+    private static byte[] message(String type, Object data) {
+        return ("event: " + type + "\ndata: " + Json.serialize(data) + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    // events written to Postgres get their timestamp from the database, this is close enough for a live view
+    private static Instant timestamp(EventEntity event) {
+        if (event.timestamp() == null) return Instant.now();
+        try {
+            return Instant.parse(event.timestamp());
+        } catch (DateTimeParseException e) {
+            return Instant.now();
+        }
+    }
+
+    private void queue(Client client, byte[] message) {
+        if (!client.pending.offer(message)) {
+            logger.debug("event stream client fell behind by {} messages: {}", CLIENT_BACKLOG, client.exchange.getRemoteAddress());
+            // closing the exchange writes to the client too, so its writer closes it once the stuck write returns
+            clients.remove(client);
+            client.pending.clear();
+            client.dropped = true;
+        }
+        if (client.writing.compareAndSet(false, true)) writers.execute(() -> write(client));
+    }
+
+    // writes until the client's queue is empty, then hands it back to queue
+    private void write(Client client) {
+        try {
+            OutputStream body = client.exchange.getResponseBody();
+            do {
+                byte[] message;
+                while (!client.dropped && (message = client.pending.poll()) != null) body.write(message);
+                if (client.dropped) {
+                    client.exchange.close();
+                    return;
+                }
+                body.flush();
+                client.writing.set(false);
+            } while (!client.pending.isEmpty() && client.writing.compareAndSet(false, true));
+        } catch (IOException e) {
+            logger.debug("event stream client disconnected: {}", client.exchange.getRemoteAddress());
+            clients.remove(client);
+            client.exchange.close();
+        }
+    }
+
+    // workflowId is null for clients following every workflow
+    private static class Client {
+        private final HttpExchange exchange;
+        private final String workflowId;
+        private final BlockingQueue<byte[]> pending = new ArrayBlockingQueue<>(CLIENT_BACKLOG);
+        private final AtomicBoolean writing = new AtomicBoolean();
+        private volatile boolean dropped;
+
+        private Client(HttpExchange exchange, String workflowId) {
+            this.exchange = exchange;
+            this.workflowId = workflowId;
+        }
+    }
+
+    // data is the workflow input on STARTED and its output on COMPLETED or FAILED
+    private record WorkflowMessage(String workflowId, String className, String functionName, Status status,
+                                   Instant timestamp, String data) {
+    }
+
+    private record HistoryMessage(String workflowId, Category category, Status status, String className,
+                                  String functionName, Long correlationNumber, Long sequenceNumber,
+                                  Instant timestamp, String data) {
+    }
+}
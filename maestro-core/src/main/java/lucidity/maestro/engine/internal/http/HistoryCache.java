@@ -0,0 +1,66 @@
+package lucidity.maestro.engine.internal.http;
+
+import lucidity.maestro.engine.internal.entity.EventEntity;
+import lucidity.maestro.engine.internal.repo.EventFeed;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serialized histories of completed workflows, which no longer change, evicted least recently used first once
+ * their bodies add up to more than {@code maxBytes}. An entry is dropped when this node appends another event to
+ * its workflow, e.g. a signal sent after completion.
+ */
+class HistoryCache {
+
+    private final long maxBytes;
+    private final int maxEntryBytes;
+    private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    // lets the feed skip locking while nothing is cached
+    private volatile int size;
+
+    HistoryCache(long maxBytes, int maxEntryBytes, EventFeed feed) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+        feed.subscribe(this::invalidate);
+    }
+
+    // histories serializing to more than this are streamed rather than cached
+    int maxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    synchronized CachedResponse get(String workflowId) {
+        return entries.get(workflowId);
+    }
+
+    synchronized void put(String workflowId, CachedResponse response) {
+        if (response.size() > maxBytes) return;
+
+        CachedResponse previous = entries.put(workflowId, response);
+        if (previous != null) bytes -= previous.size();
+        bytes += response.size();
+
+        Iterator<Map.Entry<String, CachedResponse>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().getValue().size();
+            eldest.remove();
+        }
+        size = entries.size();
+    }
+
+    private void invalidate(List<EventEntity> events) {
+        if (size == 0) return;
+
+        synchronized (this) {
+            for (EventEntity event : events) {
+                CachedResponse removed = entries.remove(event.workflowId());
+                if (removed != null) bytes -= removed.size();
+            }
+            size = entries.size();
+        }
+    }
+}
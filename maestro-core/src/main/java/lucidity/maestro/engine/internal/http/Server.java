@@ -1,29 +1,56 @@
 package lucidity.maestro.engine.internal.http;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
+import lucidity.maestro.engine.api.metrics.MaestroMetrics;
+import lucidity.maestro.engine.api.metrics.PrometheusMetrics;
+import lucidity.maestro.engine.internal.dto.WorkflowCursor;
+import lucidity.maestro.engine.internal.dto.WorkflowPage;
+import lucidity.maestro.engine.internal.dto.WorkflowQuery;
+import lucidity.maestro.engine.internal.entity.Category;
 import lucidity.maestro.engine.internal.entity.EventModel;
-import lucidity.maestro.engine.internal.entity.WorkflowModel;
-import lucidity.maestro.engine.internal.handler.Await;
-import lucidity.maestro.engine.internal.repo.EventRepo;
+import lucidity.maestro.engine.internal.entity.Status;
+import lucidity.maestro.engine.internal.repo.EventStore;
 import lucidity.maestro.engine.internal.util.Json;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
 
 public class Server {
-    private static final Logger logger = LoggerFactory.getLogger(Await.class);
+    private static final Logger logger = LoggerFactory.getLogger(Server.class);
+    private static final int STREAM_BUFFER_SIZE = 8 * 1024;
+    private static final long HISTORY_CACHE_BYTES = 32 * 1024 * 1024;
+    private static final int HISTORY_CACHE_ENTRY_BYTES = 1024 * 1024;
 
-    private EventRepo eventRepo;
+    private EventStore eventStore;
+    private final MaestroMetrics metrics;
+    private final HistoryCache historyCache;
 
-    public Server(EventRepo eventRepo) {
-        this.eventRepo = eventRepo;
+    public Server(EventStore eventStore, MaestroMetrics metrics) {
+        this.eventStore = eventStore;
+        this.metrics = metrics;
+        this.historyCache = new HistoryCache(HISTORY_CACHE_BYTES, HISTORY_CACHE_ENTRY_BYTES, eventStore.feed());
     }
 
     public void serve() {
@@ -39,32 +66,24 @@ public class Server {
                 else sendMethodNotAllowedResponse(exchange);
             });
 
-            server.createContext("/", exchange -> {
-                String requestPath = exchange.getRequestURI().getPath();
-                String filePath = "/nextjs-app" + (requestPath.equals("/") ? "/index.html" : requestPath);
-
-                try (InputStream is = Server.class.getResourceAsStream(filePath)) {
-                    if (is != null) {
-                        byte[] bytes = is.readAllBytes();
-                        String contentType = getContentType(filePath);
-                        exchange.getResponseHeaders().set("Content-Type", contentType);
-                        exchange.sendResponseHeaders(200, bytes.length);
-                        try (OutputStream os = exchange.getResponseBody()) {
-                            os.write(bytes);
-                        }
-                    } else {
-                        String response = "404 (Not Found)";
-                        exchange.sendResponseHeaders(404, response.length());
-                        try (OutputStream os = exchange.getResponseBody()) {
-                            os.write(response.getBytes());
-                        }
-                    }
-                } catch (IOException e) {
-                    logger.error(e.getMessage(), e);
-                    exchange.sendResponseHeaders(500, 0);
-                }
+            // /api/stream for the workflows as they start and end, /api/stream?workflowId=... for the history of one
+            EventStream eventStream = new EventStream(eventStore.feed());
+            server.createContext("/api/stream", exchange -> {
+                exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+
+                if ("GET".equals(exchange.getRequestMethod())) {
+                    eventStream.connect(exchange, parseQueryParameters(exchange.getRequestURI().getRawQuery()).get("workflowId"));
+                } else sendMethodNotAllowedResponse(exchange);
             });
 
+            server.createContext("/metrics", exchange -> {
+                if ("GET".equals(exchange.getRequestMethod())) handleGetMetrics(exchange);
+                else sendMethodNotAllowedResponse(exchange);
+            });
+
+            StaticAssets staticAssets = StaticAssets.load("/nextjs-app");
+            server.createContext("/", exchange -> handleGetAsset(exchange, staticAssets));
+
             server.setExecutor(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()));
             server.start();
         } catch (IOException e) {
@@ -72,15 +91,80 @@ public class Server {
         }
     }
 
-    private static String getContentType(String filePath) {
-        if (filePath.endsWith(".html")) return "text/html";
-        if (filePath.endsWith(".js")) return "application/javascript";
-        if (filePath.endsWith(".css")) return "text/css";
-        if (filePath.endsWith(".json")) return "application/json";
-        if (filePath.endsWith(".png")) return "image/png";
-        if (filePath.endsWith(".jpg") || filePath.endsWith(".jpeg")) return "image/jpeg";
-        if (filePath.endsWith(".gif")) return "image/gif";
-        return "application/octet-stream";
+    private static void handleGetAsset(HttpExchange exchange, StaticAssets staticAssets) throws IOException {
+        String requestPath = exchange.getRequestURI().getPath();
+        CachedResponse asset = staticAssets.get(requestPath.equals("/") ? "/index.html" : requestPath);
+        if (asset == null) {
+            byte[] response = "404 (Not Found)".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(404, response.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(response);
+            }
+            return;
+        }
+
+        sendCachedResponse(exchange, asset);
+    }
+
+    // answers a conditional request with 304 when the client's copy is still current
+    private static void sendCachedResponse(HttpExchange exchange, CachedResponse response) throws IOException {
+        Headers requestHeaders = exchange.getRequestHeaders();
+        Headers responseHeaders = exchange.getResponseHeaders();
+        responseHeaders.set("Cache-Control", response.cacheControl());
+        responseHeaders.set("Last-Modified", response.lastModifiedHeader());
+        if (response.compressible()) responseHeaders.set("Vary", "Accept-Encoding");
+
+        byte[] body = response.identity();
+        String encoding = null;
+        if (response.brotli() != null && acceptsEncoding(exchange, "br")) {
+            body = response.brotli();
+            encoding = "br";
+        } else if (response.gzip() != null && acceptsEncoding(exchange, "gzip")) {
+            body = response.gzip();
+            encoding = "gzip";
+        }
+        responseHeaders.set("ETag", encoding == null ? response.etag() : "W/" + response.etag());
+
+        List<String> ifNoneMatch = requestHeaders.getOrDefault("If-None-Match", List.of());
+        String ifModifiedSince = requestHeaders.getFirst("If-Modified-Since");
+        boolean notModified = !ifNoneMatch.isEmpty() ? response.matches(ifNoneMatch)
+                : ifModifiedSince != null && response.notModifiedSince(ifModifiedSince);
+        if (notModified) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        responseHeaders.set("Content-Type", response.contentType());
+        if (encoding != null) responseHeaders.set("Content-Encoding", encoding);
+
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    // only the built-in implementation can be scraped here, others are exported by whatever they report to
+    private void handleGetMetrics(HttpExchange exchange) throws IOException {
+        if (!(metrics instanceof PrometheusMetrics prometheusMetrics)) {
+            byte[] response = "404 (Not Found)".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(404, response.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(response);
+            }
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", PrometheusMetrics.CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStreamWriter writer = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+            prometheusMetrics.scrape(writer);
+        }
     }
 
     private void handleGetWorkflows(HttpExchange exchange) throws IOException {
@@ -91,16 +175,82 @@ public class Server {
         else sendInvalidPathResponse(exchange);
     }
 
+    // e.g. /api/workflows?status=COMPLETED&className=...&startedAfter=2024-01-01T00:00:00Z&limit=100&cursor=...
     private void handleGetAllWorkflows(HttpExchange exchange) throws IOException {
-        List<WorkflowModel> workflowModels = eventRepo.getWorkflows();
-        String json = Json.serialize(workflowModels);
-        sendJsonResponse(exchange, 200, json);
+        WorkflowQuery query;
+        try {
+            query = parseWorkflowQuery(parseQueryParameters(exchange.getRequestURI().getRawQuery()));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            sendJsonResponse(exchange, 400, Json.serialize(Map.of("error", String.valueOf(e.getMessage()))));
+            return;
+        }
+
+        WorkflowPage workflowPage = eventStore.getWorkflows(query);
+        streamJsonResponse(exchange, generator -> generator.writeObject(workflowPage));
+    }
+
+    private static WorkflowQuery parseWorkflowQuery(Map<String, String> parameters) {
+        String status = parameters.get("status");
+        String startedAfter = parameters.get("startedAfter");
+        String startedBefore = parameters.get("startedBefore");
+        String cursor = parameters.get("cursor");
+        String limit = parameters.get("limit");
+
+        return new WorkflowQuery(
+                status != null ? Status.valueOf(status) : null,
+                parameters.get("className"),
+                startedAfter != null ? Instant.parse(startedAfter) : null,
+                startedBefore != null ? Instant.parse(startedBefore) : null,
+                cursor != null ? WorkflowCursor.decode(cursor) : null,
+                limit != null ? Integer.parseInt(limit) : WorkflowQuery.DEFAULT_LIMIT
+        );
     }
 
+    private static Map<String, String> parseQueryParameters(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return parameters;
+
+        for (String parameter : rawQuery.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator < 0) continue;
+            parameters.put(URLDecoder.decode(parameter.substring(0, separator), StandardCharsets.UTF_8),
+                    URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    // written as the rows arrive, and kept in memory for the next request once the workflow has completed
     private void handleGetWorkflowById(HttpExchange exchange, String id) throws IOException {
-        List<EventModel> eventModels = eventRepo.get(id);
-        String json = Json.serialize(eventModels);
-        sendJsonResponse(exchange, 200, json);
+        CachedResponse cached = historyCache.get(id);
+        if (cached != null) {
+            sendCachedResponse(exchange, cached);
+            return;
+        }
+
+        // a completed workflow's own row carries its end, failed workflows aren't cached since they have none
+        boolean[] completed = new boolean[1];
+        BoundedCopy copy = new BoundedCopy(historyCache.maxEntryBytes());
+        boolean streamed = streamJsonResponse(exchange, generator -> writeHistory(generator, id, eventModel -> {
+            if (eventModel.category() == Category.WORKFLOW && eventModel.endTimestamp() != null) completed[0] = true;
+        }), copy);
+
+        if (streamed && completed[0] && copy.bytes() != null) {
+            historyCache.put(id, CachedResponse.of(copy.bytes(), "application/json",
+                    Instant.now().truncatedTo(ChronoUnit.SECONDS), false));
+        }
+    }
+
+    private void writeHistory(JsonGenerator generator, String id, Consumer<EventModel> observer) throws IOException {
+        generator.writeStartArray();
+        eventStore.forEach(id, eventModel -> {
+            try {
+                generator.writeObject(eventModel);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            observer.accept(eventModel);
+        });
+        generator.writeEndArray();
     }
 
     private static void sendInvalidPathResponse(HttpExchange exchange) throws IOException {
@@ -112,10 +262,84 @@ public class Server {
     }
 
     private static void sendJsonResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
+        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
         exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, response.getBytes().length);
+        exchange.sendResponseHeaders(statusCode, bytes.length);
         try (OutputStream os = exchange.getResponseBody()) {
-            os.write(response.getBytes());
+            os.write(bytes);
+        }
+    }
+
+    private static void streamJsonResponse(HttpExchange exchange, JsonBody body) throws IOException {
+        streamJsonResponse(exchange, body, null);
+    }
+
+    // chunked, and gzipped if the client accepts it; false if the response had to be cut short
+    private static boolean streamJsonResponse(HttpExchange exchange, JsonBody body, BoundedCopy copy) throws IOException {
+        boolean gzip = acceptsEncoding(exchange, "gzip");
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        if (gzip) exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(200, 0);
+
+        OutputStream responseBody = exchange.getResponseBody();
+        try (OutputStream os = gzip ? new GZIPOutputStream(responseBody, STREAM_BUFFER_SIZE) : responseBody;
+             JsonGenerator generator = Json.generator(copy != null ? copy.tee(os) : os)) {
+            body.write(generator);
+        } catch (IOException | RuntimeException e) {
+            // the status is already sent, all that's left is to cut the response short
+            logger.error("failed to stream response for {}", exchange.getRequestURI(), e);
+            exchange.close();
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean acceptsEncoding(HttpExchange exchange, String encoding) {
+        return exchange.getRequestHeaders().getOrDefault("Accept-Encoding", List.of()).stream()
+                .flatMap(header -> Arrays.stream(header.split(",")))
+                .map(accepted -> accepted.split(";")[0].trim())
+                .anyMatch(accepted -> accepted.equalsIgnoreCase(encoding));
+    }
+
+    // the uncompressed body as it is streamed, given up once it outgrows limit
+    private static class BoundedCopy {
+        private final int limit;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        BoundedCopy(int limit) {
+            this.limit = limit;
+        }
+
+        OutputStream tee(OutputStream out) {
+            return new FilterOutputStream(out) {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    copy(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    copy(b, off, len);
+                }
+            };
+        }
+
+        // null if the body was larger than limit
+        byte[] bytes() {
+            return buffer != null ? buffer.toByteArray() : null;
         }
+
+        private void copy(byte[] b, int off, int len) {
+            if (buffer == null) return;
+            if (buffer.size() + len > limit) buffer = null;
+            else buffer.write(b, off, len);
+        }
+    }
+
+    private interface JsonBody {
+        void write(JsonGenerator generator) throws IOException;
     }
 }
@@ -0,0 +1,123 @@
+package lucidity.maestro.engine.internal.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * The dashboard bundle, read from the classpath once and kept in memory along with a gzip variant of every
+ * compressible file. A {@code .br} or {@code .gz} file shipped next to an asset is served as its variant instead of
+ * being computed, which is the only way brotli is offered since the JDK has no encoder for it.
+ */
+class StaticAssets {
+
+    private static final Logger logger = LoggerFactory.getLogger(StaticAssets.class);
+
+    // Next.js puts a content hash in every file name under this path
+    private static final String IMMUTABLE_PREFIX = "/_next/static/";
+    private static final Set<String> COMPRESSIBLE_TYPES = Set.of(
+            "text/html", "application/javascript", "text/css", "application/json", "image/svg+xml", "text/plain"
+    );
+
+    private final Map<String, CachedResponse> assets;
+
+    private StaticAssets(Map<String, CachedResponse> assets) {
+        this.assets = assets;
+    }
+
+    // e.g. /index.html, or null if there is no such asset
+    CachedResponse get(String path) {
+        return assets.get(path);
+    }
+
+    static StaticAssets load(String root) {
+        URL url = StaticAssets.class.getResource(root);
+        if (url == null) {
+            logger.info("no dashboard assets found at {}", root);
+            return new StaticAssets(Map.of());
+        }
+
+        try {
+            URI uri = url.toURI();
+            if (!"jar".equals(uri.getScheme())) return new StaticAssets(index(Path.of(uri)));
+
+            try (FileSystem fileSystem = FileSystems.newFileSystem(uri, Map.of())) {
+                return new StaticAssets(index(fileSystem.getPath(root)));
+            } catch (FileSystemAlreadyExistsException e) {
+                return new StaticAssets(index(FileSystems.getFileSystem(uri).getPath(root)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<String, CachedResponse> index(Path root) throws IOException {
+        Map<String, Path> files = new HashMap<>();
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.filter(Files::isRegularFile).forEach(file -> files.put(toRequestPath(root, file), file));
+        }
+
+        Map<String, CachedResponse> assets = new HashMap<>();
+        for (Map.Entry<String, Path> file : files.entrySet()) {
+            String path = file.getKey();
+            if ((path.endsWith(".br") || path.endsWith(".gz")) && files.containsKey(path.substring(0, path.length() - 3))) continue;
+
+            byte[] identity = Files.readAllBytes(file.getValue());
+            String contentType = getContentType(path);
+            byte[] gzip = files.containsKey(path + ".gz") ? Files.readAllBytes(files.get(path + ".gz"))
+                    : COMPRESSIBLE_TYPES.contains(contentType) ? CachedResponse.gzip(identity) : null;
+            byte[] brotli = files.containsKey(path + ".br") ? Files.readAllBytes(files.get(path + ".br")) : null;
+            Instant lastModified = Files.getLastModifiedTime(file.getValue()).toInstant().truncatedTo(ChronoUnit.SECONDS);
+
+            assets.put(path, new CachedResponse(
+                    identity,
+                    gzip != null && gzip.length < identity.length ? gzip : null,
+                    brotli != null && brotli.length < identity.length ? brotli : null,
+                    contentType, CachedResponse.etag(identity), lastModified, path.startsWith(IMMUTABLE_PREFIX)
+            ));
+        }
+
+        logger.info("loaded {} dashboard assets, {} bytes", assets.size(),
+                assets.values().stream().mapToLong(asset -> asset.identity().length).sum());
+        return Map.copyOf(assets);
+    }
+
+    private static String toRequestPath(Path root, Path file) {
+        StringBuilder path = new StringBuilder();
+        for (Path name : root.relativize(file)) path.append('/').append(name);
+        return path.toString();
+    }
+
+    static String getContentType(String filePath) {
+        if (filePath.endsWith(".html")) return "text/html";
+        if (filePath.endsWith(".js")) return "application/javascript";
+        if (filePath.endsWith(".css")) return "text/css";
+        if (filePath.endsWith(".json")) return "application/json";
+        if (filePath.endsWith(".svg")) return "image/svg+xml";
+        if (filePath.endsWith(".txt")) return "text/plain";
+        if (filePath.endsWith(".png")) return "image/png";
+        if (filePath.endsWith(".jpg") || filePath.endsWith(".jpeg")) return "image/jpeg";
+        if (filePath.endsWith(".gif")) return "image/gif";
+        if (filePath.endsWith(".ico")) return "image/x-icon";
+        if (filePath.endsWith(".woff2")) return "font/woff2";
+        return "application/octet-stream";
+    }
+}
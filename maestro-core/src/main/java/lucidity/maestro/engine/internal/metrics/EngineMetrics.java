@@ -0,0 +1,112 @@
+package lucidity.maestro.engine.internal.metrics;
+
+import lucidity.maestro.engine.api.metrics.MaestroMetrics;
+
+import java.time.Duration;
+import java.util.function.DoubleSupplier;
+
+/**
+ * The engine's meters on top of {@link MaestroMetrics}. Each execution is tracked on the thread running it: it is
+ * replaying until its first step that isn't answered from the history, and the queries made while a step runs are
+ * its round trips.
+ */
+public class EngineMetrics {
+
+    public static final EngineMetrics NOOP = new EngineMetrics(MaestroMetrics.NOOP);
+
+    private static final ThreadLocal<Execution> execution = new ThreadLocal<>();
+
+    private final MaestroMetrics metrics;
+
+    public EngineMetrics(MaestroMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public MaestroMetrics metrics() {
+        return metrics;
+    }
+
+    public void executionStarted(String workflowType) {
+        execution.set(new Execution(workflowType, System.nanoTime()));
+    }
+
+    // called by every step once it has looked itself up in the history
+    public void stepStarted(String step, boolean replayed) {
+        Execution current = execution.get();
+        if (current == null) return;
+
+        if (replayed) {
+            current.replayedSteps++;
+            return;
+        }
+        if (current.replaying) replayEnded(current);
+        stepEnded(current);
+        current.step = step;
+        current.stepRoundTrips = 0;
+    }
+
+    public void executionEnded() {
+        Execution current = execution.get();
+        if (current == null) return;
+        execution.remove();
+
+        if (current.replaying) replayEnded(current);
+        stepEnded(current);
+    }
+
+    public void query(String query, long startNanos) {
+        metrics.recordTime("maestro.db.query", System.nanoTime() - startNanos, "query", query);
+        Execution current = execution.get();
+        if (current != null && current.step != null) current.stepRoundTrips++;
+    }
+
+    // e.g. sequence when another writer took the sequence number, correlation_status when the step was recorded already
+    public void conflict(String index) {
+        metrics.increment("maestro.event.conflicts", 1, "index", index);
+    }
+
+    public void schedulerLag(Duration lag) {
+        metrics.recordTime("maestro.scheduler.lag", Math.max(0, lag.toNanos()));
+    }
+
+    public void timeoutScan(long startNanos, int claims) {
+        metrics.recordTime("maestro.timeout.scan", System.nanoTime() - startNanos);
+        metrics.increment("maestro.timeout.claims", claims);
+    }
+
+    // a timed-out event on its last attempt, it isn't claimed again whether the replay recovers it or not
+    public void timeoutAbandoned() {
+        metrics.increment("maestro.timeout.abandoned", 1);
+    }
+
+    public void gauge(String name, DoubleSupplier value) {
+        metrics.gauge(name, value);
+    }
+
+    private void replayEnded(Execution current) {
+        current.replaying = false;
+        metrics.recordTime("maestro.workflow.replay", System.nanoTime() - current.startNanos, "workflow", current.workflowType);
+        metrics.recordValue("maestro.workflow.replay.steps", current.replayedSteps, "workflow", current.workflowType);
+    }
+
+    private void stepEnded(Execution current) {
+        if (current.step == null) return;
+        metrics.recordValue("maestro.step.db.round.trips", current.stepRoundTrips, "step", current.step);
+        current.step = null;
+    }
+
+    private static class Execution {
+        private final String workflowType;
+        private final long startNanos;
+        private boolean replaying = true;
+        private int replayedSteps;
+        // the step running now, null while replaying or between steps
+        private String step;
+        private int stepRoundTrips;
+
+        private Execution(String workflowType, long startNanos) {
+            this.workflowType = workflowType;
+            this.startNanos = startNanos;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package lucidity.maestro.engine.internal.repo;
+
+import lucidity.maestro.engine.internal.entity.EventEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Events this node appended, handed to subscribers right after their write succeeded. Subscribers run on the
+ * writing thread, so they should only hand the events off.
+ */
+public class EventFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventFeed.class);
+
+    private final List<Consumer<List<EventEntity>>> subscribers = new CopyOnWriteArrayList<>();
+
+    public void subscribe(Consumer<List<EventEntity>> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    void publish(List<EventEntity> events) {
+        if (events.isEmpty()) return;
+
+        for (Consumer<List<EventEntity>> subscriber : subscribers) {
+            try {
+                subscriber.accept(events);
+            } catch (RuntimeException e) {
+                logger.error("event feed subscriber failed", e);
+            }
+        }
+    }
+}
@@ -2,9 +2,14 @@ package lucidity.maestro.engine.internal.repo;
 
 import io.github.resilience4j.retry.Retry;
 import lucidity.maestro.engine.internal.config.RetryConfiguration;
+import lucidity.maestro.engine.internal.config.TimeoutRecoveryPolicy;
+import lucidity.maestro.engine.internal.dto.TimeoutClaim;
+import lucidity.maestro.engine.internal.dto.WorkflowPage;
+import lucidity.maestro.engine.internal.dto.WorkflowQuery;
 import lucidity.maestro.engine.internal.entity.*;
 import lucidity.maestro.engine.internal.exception.WorkflowCorrelationStatusConflict;
 import lucidity.maestro.engine.internal.exception.WorkflowSequenceConflict;
+import lucidity.maestro.engine.internal.metrics.EngineMetrics;
 import org.postgresql.util.PSQLException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,24 +18,61 @@ import javax.sql.DataSource;
 import java.sql.*;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 import static lucidity.maestro.engine.internal.repo.SqlQueries.*;
 
-public class EventRepo {
+public class EventRepo implements EventStore {
 
     private static final Logger logger = LoggerFactory.getLogger(EventRepo.class);
+    private static final int STREAMING_FETCH_SIZE = 500;
     private final DataSource dataSource;
+    private final GroupCommitEventWriter groupCommitEventWriter;
+    private final EventFeed feed = new EventFeed();
+    private final EngineMetrics metrics;
 
     public EventRepo(DataSource dataSource) {
+        this(dataSource, null, EngineMetrics.NOOP);
+    }
+
+    public EventRepo(DataSource dataSource, GroupCommitEventWriter groupCommitEventWriter, EngineMetrics metrics) {
         this.dataSource = dataSource;
+        this.groupCommitEventWriter = groupCommitEventWriter;
+        this.metrics = metrics;
     }
 
-    public List<WorkflowModel> getWorkflows() {
+    @Override
+    public WorkflowPage getWorkflows(WorkflowQuery query) {
+        long start = System.nanoTime();
+        StringBuilder sql = new StringBuilder(SELECT_WORKFLOW_SUMMARIES);
+        if (query.status() != null) sql.append(WORKFLOW_SUMMARIES_STATUS_FILTER);
+        if (query.className() != null) sql.append(WORKFLOW_SUMMARIES_CLASS_FILTER);
+        if (query.startedAfter() != null) sql.append(WORKFLOW_SUMMARIES_STARTED_AFTER_FILTER);
+        if (query.startedBefore() != null) sql.append(WORKFLOW_SUMMARIES_STARTED_BEFORE_FILTER);
+        if (query.after() != null) sql.append(WORKFLOW_SUMMARIES_CURSOR_FILTER);
+        sql.append(WORKFLOW_SUMMARIES_PAGE);
+
         List<WorkflowModel> workflowModels = new ArrayList<>();
         try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_WORKFLOWS)) {
+             PreparedStatement preparedStatement = connection.prepareStatement(sql.toString())) {
+
+            int parameterIndex = 1;
+            if (query.status() != null) preparedStatement.setString(parameterIndex++, query.status().name());
+            if (query.className() != null) preparedStatement.setString(parameterIndex++, query.className());
+            if (query.startedAfter() != null) preparedStatement.setTimestamp(parameterIndex++, Timestamp.from(query.startedAfter()));
+            if (query.startedBefore() != null) preparedStatement.setTimestamp(parameterIndex++, Timestamp.from(query.startedBefore()));
+            if (query.after() != null) {
+                preparedStatement.setTimestamp(parameterIndex++, Timestamp.from(query.after().startTimestamp()));
+                preparedStatement.setString(parameterIndex++, query.after().workflowId());
+            }
+            // one more than the page, to tell whether there is a next one
+            preparedStatement.setInt(parameterIndex, query.limit() + 1);
 
             ResultSet resultSet = preparedStatement.executeQuery();
 
@@ -39,32 +81,73 @@ public class EventRepo {
                 workflowModels.add(workflowModel);
             }
         } catch (SQLException e) {
-            logger.error("Database access error while fetching event batch", e);
+            logger.error("Database access error while fetching workflows", e);
+        } finally {
+            metrics.query("select_workflow_summaries", start);
         }
-        return workflowModels;
+        return WorkflowPage.of(workflowModels, query.limit());
     }
 
+    @Override
     public List<EventModel> get(String workflowId) {
         List<EventModel> eventModels = new ArrayList<>();
+        forEach(workflowId, eventModels::add);
+        return eventModels;
+    }
+
+    @Override
+    public void forEach(String workflowId, Consumer<EventModel> consumer) {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            // the driver only fetches rows in batches through a cursor inside a transaction
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(SELECT_EVENTS_BY_WORKFLOW_ID)) {
+                preparedStatement.setFetchSize(STREAMING_FETCH_SIZE);
+                preparedStatement.setString(1, workflowId);
+                preparedStatement.setString(2, workflowId);
+
+                ResultSet resultSet = preparedStatement.executeQuery();
+
+                while (resultSet.next()) {
+                    consumer.accept(mapToEventModel(resultSet));
+                }
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.error("Database access error while fetching workflows by id", e);
+        } finally {
+            metrics.query("select_events_by_workflow_id", start);
+        }
+    }
+
+    @Override
+    public List<EventEntity> getHistory(String workflowId, Long afterSequenceNumber) {
+        long start = System.nanoTime();
+        List<EventEntity> history = new ArrayList<>();
         try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_EVENTS_BY_WORKFLOW_ID)) {
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_HISTORY)) {
 
             preparedStatement.setString(1, workflowId);
-            preparedStatement.setString(2, workflowId);
-
+            preparedStatement.setLong(2, afterSequenceNumber);
             ResultSet resultSet = preparedStatement.executeQuery();
 
             while (resultSet.next()) {
-                EventModel eventEntity = mapToEventModel(resultSet);
-                eventModels.add(eventEntity);
+                history.add(mapToEvent(resultSet));
             }
         } catch (SQLException e) {
-            logger.error("Database access error while fetching workflows by id", e);
+            logger.error("Database access error while fetching history with workflowId: {}", workflowId, e);
+            throw new RuntimeException(e);
+        } finally {
+            metrics.query("select_history", start);
         }
-        return eventModels;
+        return history;
     }
 
+    @Override
     public EventEntity get(String workflowId, Long correlationNumber, Status status) {
+        long start = System.nanoTime();
         try (Connection connection = dataSource.getConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(SELECT_EVENT_BY_CORRELATION_NO)) {
 
@@ -78,10 +161,14 @@ public class EventRepo {
         } catch (SQLException e) {
             logger.error("Database access error while fetching event with workflowId: {}, correlationNumber: {}, status: {}", workflowId, correlationNumber, status, e);
             throw new RuntimeException(e);
+        } finally {
+            metrics.query("select_event_by_correlation_no", start);
         }
     }
 
+    @Override
     public EventEntity get(String workflowId, Category category, Status status) {
+        long start = System.nanoTime();
         try (Connection connection = dataSource.getConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(SELECT_EVENT)) {
 
@@ -95,10 +182,14 @@ public class EventRepo {
         } catch (SQLException e) {
             logger.error("Database access error while fetching event with workflowId: {}, status: {}", workflowId, status, e);
             throw new RuntimeException(e);
+        } finally {
+            metrics.query("select_event", start);
         }
     }
 
+    @Override
     public List<EventEntity> getSignals(String workflowId, Long sequenceNumber) {
+        long start = System.nanoTime();
         List<EventEntity> signals = new ArrayList<>();
         try (Connection connection = dataSource.getConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(SELECT_SIGNALS)) {
@@ -116,44 +207,242 @@ public class EventRepo {
         } catch (SQLException e) {
             logger.error("Database access error while fetching signals with workflowId: {} and sequenceNumber: {}", workflowId, sequenceNumber, e);
             throw new RuntimeException(e);
+        } finally {
+            metrics.query("select_signals", start);
         }
         return signals;
     }
 
-    public List<EventEntity> getTimedOutEvents() {
-        List<EventEntity> eventEntities = new ArrayList<>();
+    @Override
+    public List<TimeoutClaim> claimTimedOutEvents(TimeoutRecoveryPolicy policy) {
+        long start = System.nanoTime();
+        List<TimeoutClaim> claims = new ArrayList<>();
         try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_TIMED_OUT_EVENTS)) {
+             PreparedStatement preparedStatement = connection.prepareStatement(CLAIM_TIMED_OUT_EVENTS)) {
+
+            preparedStatement.setInt(1, TIMED_OUT_EVENTS_LIMIT);
+            preparedStatement.setInt(2, policy.maxAttempts());
+            preparedStatement.setLong(3, policy.initialBackoff().toMillis());
+            preparedStatement.setLong(4, policy.maxBackoff().toMillis());
             ResultSet resultSet = preparedStatement.executeQuery();
 
             while (resultSet.next()) {
-                EventEntity eventEntity = mapToEvent(resultSet);
-                eventEntities.add(eventEntity);
+                claims.add(new TimeoutClaim(mapToEvent(resultSet), resultSet.getInt("attempt")));
             }
         } catch (SQLException e) {
-            logger.error("Database access error while fetching event batch", e);
+            logger.error("Database access error while claiming timed out events", e);
+        } finally {
+            metrics.query("claim_timed_out_events", start);
         }
-        return eventEntities;
+        return claims;
     }
 
+    // every call reserves a new number, so an allocated number is never handed to two writers
+    @Override
     public Long getNextSequenceNumber(String workflowId) {
+        long start = System.nanoTime();
         try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(MAX_SEQUENCE_NUMBER)) {
+             PreparedStatement preparedStatement = connection.prepareStatement(NEXT_SEQUENCE_NUMBER)) {
 
             preparedStatement.setString(1, workflowId);
             ResultSet resultSet = preparedStatement.executeQuery();
 
-            if (resultSet.next()) return resultSet.getLong(1) + 1;
+            if (resultSet.next()) return resultSet.getLong(1);
+        } catch (SQLException e) {
+            logger.error("Database access error while allocating sequence_number with workflowId: {}", workflowId);
+            throw new RuntimeException(e);
+        } finally {
+            metrics.query("next_sequence_number", start);
+        }
+        throw new IllegalStateException("No sequence_number allocated for workflowId: " + workflowId);
+    }
+
+    // one statement for all workflows, the counter of each grows by its count
+    @Override
+    public Map<String, Long> reserveSequenceNumbers(Map<String, Integer> counts) {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            return reserveSequenceNumbers(connection, counts);
+        } catch (SQLException e) {
+            logger.error("Database access error while reserving sequence numbers for {} workflows", counts.size(), e);
+            throw new RuntimeException(e);
+        } finally {
+            metrics.query("reserve_sequence_numbers", start);
+        }
+    }
+
+    private static Map<String, Long> reserveSequenceNumbers(Connection connection, Map<String, Integer> counts) throws SQLException {
+        List<String> workflowIds = counts.keySet().stream().sorted().toList();
+        Map<String, Long> firstSequenceNumbers = new HashMap<>();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(RESERVE_SEQUENCE_NUMBERS)) {
+            preparedStatement.setArray(1, connection.createArrayOf("varchar", workflowIds.toArray()));
+            preparedStatement.setArray(2, connection.createArrayOf("bigint", workflowIds.stream().map(counts::get).map(Integer::longValue).toArray()));
+            ResultSet resultSet = preparedStatement.executeQuery();
+
+            while (resultSet.next()) {
+                String workflowId = resultSet.getString("workflow_id");
+                firstSequenceNumbers.put(workflowId, resultSet.getLong("sequence_number") - counts.get(workflowId) + 1);
+            }
+        }
+        return firstSequenceNumbers;
+    }
+
+    @Override
+    public EventEntity saveWithNextSequenceNumber(EventEntity eventEntity) {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(INSERT_EVENT_WITH_NEXT_SEQUENCE_NUMBER)) {
+
+            preparedStatement.setString(1, eventEntity.workflowId());
+            preparedStatement.setString(2, eventEntity.id());
+            preparedStatement.setString(3, eventEntity.workflowId());
+            preparedStatement.setObject(4, eventEntity.correlationNumber(), java.sql.Types.BIGINT);
+            preparedStatement.setString(5, eventEntity.category().name());
+            preparedStatement.setString(6, eventEntity.className());
+            preparedStatement.setString(7, eventEntity.functionName());
+            preparedStatement.setString(8, eventEntity.data());
+            preparedStatement.setString(9, eventEntity.status().name());
+            preparedStatement.setString(10, eventEntity.metadata());
+            ResultSet resultSet = preparedStatement.executeQuery();
+            resultSet.next();
+
+            EventEntity stored = mapToEvent(resultSet);
+            feed.publish(List.of(stored));
+            return stored;
+        } catch (SQLException e) {
+            RuntimeException conflict = e instanceof PSQLException psqlException ? conflictOf(psqlException) : null;
+            if (conflict != null) throw conflict;
+            logger.error("Database access error while inserting event with id: {}", eventEntity.id(), e);
+            throw new RuntimeException(e);
+        } finally {
+            metrics.query("insert_event_with_next_sequence_number", start);
+        }
+    }
+
+    @Override
+    public void saveAllWithNextSequenceNumbers(List<EventEntity> events) {
+        long start = System.nanoTime();
+        Map<String, Integer> counts = new HashMap<>();
+        events.forEach(event -> counts.merge(event.workflowId(), 1, Integer::sum));
+
+        List<EventEntity> numbered = new ArrayList<>(events.size());
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_EVENT)) {
+                Map<String, Long> nextSequenceNumbers = new HashMap<>(reserveSequenceNumbers(connection, counts));
+                for (EventEntity eventEntity : inWorkflowOrder(events)) {
+                    EventEntity numberedEvent = eventEntity.withSequenceNumber(nextSequenceNumbers.merge(eventEntity.workflowId(), 1L, Long::sum) - 1);
+                    numbered.add(numberedEvent);
+                    bindEvent(preparedStatement, numberedEvent);
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.error("Database access error while inserting batch of {} events", events.size(), e);
+            throw new RuntimeException(e);
+        } finally {
+            metrics.query("insert_event_with_next_sequence_numbers_batch", start);
+        }
+        feed.publish(numbered);
+    }
+
+    @Override
+    public void saveAll(List<EventEntity> events) {
+        List<EventEntity> ordered = inWorkflowOrder(events);
+        insertBatch(ordered, INSERT_EVENT, "insert_event_batch");
+        feed.publish(ordered);
+    }
+
+    // relies on the unique indexes, a skipped row has an update count of 0
+    @Override
+    public List<EventEntity> saveAllIfAbsent(List<EventEntity> events) {
+        List<EventEntity> ordered = inWorkflowOrder(events);
+        int[] insertCounts = insertBatch(ordered, INSERT_EVENT_IGNORING_CONFLICTS, "insert_event_ignoring_conflicts_batch");
+        List<EventEntity> inserted = new ArrayList<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            if (insertCounts[i] > 0) inserted.add(ordered.get(i));
+        }
+        feed.publish(inserted);
+        return inserted;
+    }
+
+    // every insert updates its workflow's workflow_summary row, and its workflow_sequence row when numbered in the
+    // insert; a transaction writing several workflows locks those rows in workflow id order so that two of them can't
+    // deadlock. The sort is stable, keeping the order of each workflow's events
+    static List<EventEntity> inWorkflowOrder(List<EventEntity> events) {
+        return events.stream().sorted(Comparator.comparing(EventEntity::workflowId)).toList();
+    }
+
+    private int[] insertBatch(List<EventEntity> events, String insertQuery, String queryName) {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(insertQuery)) {
+                for (EventEntity eventEntity : events) {
+                    bindEvent(preparedStatement, eventEntity);
+                    preparedStatement.addBatch();
+                }
+                int[] insertCounts = preparedStatement.executeBatch();
+                connection.commit();
+                return insertCounts;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.error("Database access error while inserting batch of {} events", events.size(), e);
+            throw new RuntimeException(e);
+        } finally {
+            metrics.query(queryName, start);
+        }
+    }
+
+    @Override
+    public Map<String, EventEntity> getStartedWorkflows(Collection<String> workflowIds) {
+        long start = System.nanoTime();
+        Map<String, EventEntity> startedWorkflows = new HashMap<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_STARTED_WORKFLOWS)) {
+
+            preparedStatement.setArray(1, connection.createArrayOf("varchar", workflowIds.toArray()));
+            ResultSet resultSet = preparedStatement.executeQuery();
+
+            while (resultSet.next()) {
+                EventEntity eventEntity = mapToEvent(resultSet);
+                startedWorkflows.put(eventEntity.workflowId(), eventEntity);
+            }
         } catch (SQLException e) {
-            logger.error("Database access error while fetching max sequence_number with workflowId: {}", workflowId);
+            logger.error("Database access error while fetching {} started workflows", workflowIds.size(), e);
             throw new RuntimeException(e);
+        } finally {
+            metrics.query("select_started_workflows", start);
         }
-        return 1L;
+        return startedWorkflows;
     }
 
+    @Override
     public void saveWithRetry(Supplier<EventEntity> eventSupplier) {
         try {
-            Retry.decorateCheckedRunnable(RetryConfiguration.getRetry(), () -> save(eventSupplier.get())).run();
+            Retry.decorateCheckedRunnable(RetryConfiguration.getRetry(), () -> {
+                try {
+                    save(eventSupplier.get());
+                } catch (WorkflowSequenceConflict e) {
+                    metrics.conflict("sequence");
+                    throw e;
+                } catch (WorkflowCorrelationStatusConflict e) {
+                    metrics.conflict("correlation_status");
+                    throw e;
+                }
+            }).run();
         } catch (RuntimeException e) {
             throw e;
         } catch (Exception e) {
@@ -164,39 +453,114 @@ public class EventRepo {
     }
 
     private void save(EventEntity eventEntity) throws SQLException, WorkflowCorrelationStatusConflict, WorkflowSequenceConflict {
+        if (groupCommitEventWriter != null) {
+            long start = System.nanoTime();
+            try {
+                groupCommitEventWriter.save(eventEntity);
+            } finally {
+                // includes the wait for the batch to be flushed
+                metrics.query("group_commit_insert_event", start);
+            }
+            feed.publish(List.of(eventEntity));
+            return;
+        }
+
+        long start = System.nanoTime();
         try (Connection connection = dataSource.getConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(INSERT_EVENT)) {
 
-            preparedStatement.setString(1, eventEntity.id());
-            preparedStatement.setString(2, eventEntity.workflowId());
-            preparedStatement.setObject(3, eventEntity.correlationNumber(), java.sql.Types.BIGINT);
-            preparedStatement.setLong(4, eventEntity.sequenceNumber());
-            preparedStatement.setString(5, eventEntity.category().name());
-            preparedStatement.setString(6, eventEntity.className());
-            preparedStatement.setString(7, eventEntity.functionName());
-            preparedStatement.setString(8, eventEntity.data());
-            preparedStatement.setString(9, eventEntity.status().name());
-            preparedStatement.setString(10, eventEntity.metadata());
+            bindEvent(preparedStatement, eventEntity);
             preparedStatement.executeUpdate();
+            feed.publish(List.of(eventEntity));
 
         } catch (PSQLException e) {
-            if ("23505".equals(e.getSQLState())) {
-                String message = e.getMessage();
-                logger.debug(message);
-
-                if (message.contains("event_unique_workflow_correlation_status")) {
-                    logger.debug("Violation of unique index: event_unique_workflow_correlation_status");
-                    throw new WorkflowCorrelationStatusConflict(message);
-                } else if (message.contains("event_unique_workflow_sequence")) {
-                    logger.debug("Violation of unique index: event_unique_workflow_sequence");
-                    throw new WorkflowSequenceConflict(message);
-                } else logger.error("Unknown unique index violation");
-            }
+            RuntimeException conflict = conflictOf(e);
+            if (conflict != null) throw conflict;
             throw e;
         } catch (SQLException e) {
             logger.error("Database access error while inserting event with id: {}", eventEntity.id(), e);
             throw e;
+        } finally {
+            metrics.query("insert_event", start);
+        }
+    }
+
+    // null unless one of the event table's unique indexes was violated
+    private static RuntimeException conflictOf(PSQLException e) {
+        if ("23505".equals(e.getSQLState())) {
+            String message = e.getMessage();
+            logger.debug(message);
+
+            if (message.contains("event_unique_workflow_correlation_status")) {
+                logger.debug("Violation of unique index: event_unique_workflow_correlation_status");
+                return new WorkflowCorrelationStatusConflict(message);
+            } else if (message.contains("event_unique_workflow_sequence")) {
+                logger.debug("Violation of unique index: event_unique_workflow_sequence");
+                return new WorkflowSequenceConflict(message);
+            } else logger.error("Unknown unique index violation");
         }
+        return null;
+    }
+
+    @Override
+    public EventFeed feed() {
+        return feed;
+    }
+
+    @Override
+    public WorkflowSnapshot getSnapshot(String workflowId) {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_SNAPSHOT)) {
+
+            preparedStatement.setString(1, workflowId);
+            ResultSet resultSet = preparedStatement.executeQuery();
+
+            if (resultSet.next()) return new WorkflowSnapshot(
+                    resultSet.getString("workflow_id"),
+                    resultSet.getLong("correlation_number"),
+                    resultSet.getLong("sequence_number"),
+                    resultSet.getString("state")
+            );
+            else return null;
+        } catch (SQLException e) {
+            logger.error("Database access error while fetching snapshot with workflowId: {}", workflowId, e);
+            throw new RuntimeException(e);
+        } finally {
+            metrics.query("select_snapshot", start);
+        }
+    }
+
+    @Override
+    public void saveSnapshot(WorkflowSnapshot snapshot) {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(UPSERT_SNAPSHOT)) {
+
+            preparedStatement.setString(1, snapshot.workflowId());
+            preparedStatement.setLong(2, snapshot.correlationNumber());
+            preparedStatement.setLong(3, snapshot.sequenceNumber());
+            preparedStatement.setString(4, snapshot.state());
+            preparedStatement.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Database access error while saving snapshot with workflowId: {}", snapshot.workflowId(), e);
+            throw new RuntimeException(e);
+        } finally {
+            metrics.query("upsert_snapshot", start);
+        }
+    }
+
+    static void bindEvent(PreparedStatement preparedStatement, EventEntity eventEntity) throws SQLException {
+        preparedStatement.setString(1, eventEntity.id());
+        preparedStatement.setString(2, eventEntity.workflowId());
+        preparedStatement.setObject(3, eventEntity.correlationNumber(), java.sql.Types.BIGINT);
+        preparedStatement.setLong(4, eventEntity.sequenceNumber());
+        preparedStatement.setString(5, eventEntity.category().name());
+        preparedStatement.setString(6, eventEntity.className());
+        preparedStatement.setString(7, eventEntity.functionName());
+        preparedStatement.setString(8, eventEntity.data());
+        preparedStatement.setString(9, eventEntity.status().name());
+        preparedStatement.setString(10, eventEntity.metadata());
     }
 
     private static EventEntity mapToEvent(ResultSet resultSet) throws SQLException {
@@ -220,10 +584,12 @@ public class EventRepo {
                 rs.getString("workflow_id"),
                 rs.getString("class_name"),
                 rs.getString("function_name"),
+                Status.valueOf(rs.getString("status")),
                 getInstantSafely(rs, "start_timestamp"),
                 getInstantSafely(rs, "end_timestamp"),
                 rs.getString("input"),
-                rs.getString("output")
+                rs.getString("output"),
+                rs.getLong("event_count")
         );
     }
 
@@ -233,6 +599,8 @@ public class EventRepo {
                 Category.valueOf(rs.getString("category")),
                 rs.getString("class_name"),
                 rs.getString("function_name"),
+                rs.getLong("correlation_number"),
+                rs.getLong("sequence_number"),
                 getInstantSafely(rs, "start_timestamp"),
                 getInstantSafely(rs, "end_timestamp"),
                 rs.getString("input"),
@@ -0,0 +1,94 @@
+package lucidity.maestro.engine.internal.repo;
+
+import lucidity.maestro.engine.internal.config.TimeoutRecoveryPolicy;
+import lucidity.maestro.engine.internal.dto.TimeoutClaim;
+import lucidity.maestro.engine.internal.dto.WorkflowPage;
+import lucidity.maestro.engine.internal.dto.WorkflowQuery;
+import lucidity.maestro.engine.internal.entity.Category;
+import lucidity.maestro.engine.internal.entity.EventEntity;
+import lucidity.maestro.engine.internal.entity.EventModel;
+import lucidity.maestro.engine.internal.entity.Status;
+import lucidity.maestro.engine.internal.entity.WorkflowSnapshot;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Persistence of workflow events. {@link EventRepo} is the Postgres implementation,
+ * {@link InMemoryEventStore} keeps everything on the heap.
+ * <p>
+ * Implementations must enforce the same uniqueness rules as the event table: one event per
+ * (workflowId, correlationNumber, status) and one event per (workflowId, sequenceNumber),
+ * reported as {@link lucidity.maestro.engine.internal.exception.WorkflowCorrelationStatusConflict}
+ * and {@link lucidity.maestro.engine.internal.exception.WorkflowSequenceConflict}.
+ */
+public interface EventStore {
+
+    // newest first, one page at a time
+    WorkflowPage getWorkflows(WorkflowQuery query);
+
+    List<EventModel> get(String workflowId);
+
+    // the events of get(workflowId) one at a time, for callers that don't want them all in memory at once
+    default void forEach(String workflowId, Consumer<EventModel> consumer) {
+        get(workflowId).forEach(consumer);
+    }
+
+    // all events of the workflow ordered by sequence number
+    default List<EventEntity> getHistory(String workflowId) {
+        return getHistory(workflowId, 0L);
+    }
+
+    // events of the workflow after the given sequence number, ordered by sequence number
+    List<EventEntity> getHistory(String workflowId, Long afterSequenceNumber);
+
+    EventEntity get(String workflowId, Long correlationNumber, Status status);
+
+    EventEntity get(String workflowId, Category category, Status status);
+
+    // signals received after the last completed event preceding sequenceNumber
+    List<EventEntity> getSignals(String workflowId, Long sequenceNumber);
+
+    // bounds the due deadlines claimed per poll, the rest are picked up by the next one
+    int TIMED_OUT_EVENTS_LIMIT = 1_000;
+
+    // claims the STARTED workflow and activity events past their startedToCompletedTimeout, so that only one caller
+    // replays each, and schedules their next attempt; only the earliest due event of a workflow is claimed per call
+    List<TimeoutClaim> claimTimedOutEvents(TimeoutRecoveryPolicy policy);
+
+    // for the steps of a running execution, which stores the event itself; signals use saveWithNextSequenceNumber
+    Long getNextSequenceNumber(String workflowId);
+
+    // reserves count consecutive sequence numbers per workflow and returns the first of each range
+    Map<String, Long> reserveSequenceNumbers(Map<String, Integer> counts);
+
+    void saveWithRetry(Supplier<EventEntity> eventSupplier);
+
+    // allocates the sequence number in the transaction inserting the event, ignoring the one it carries, so every
+    // event below it is stored by the time it is: a step reading the signals below its own number can't miss one
+    // that lands afterwards. Returns the stored event
+    EventEntity saveWithNextSequenceNumber(EventEntity event);
+
+    // the same for a batch in one transaction, the events of each workflow are numbered in their order
+    void saveAllWithNextSequenceNumbers(List<EventEntity> events);
+
+    // inserts the events in one batch, their sequence numbers must have been reserved beforehand
+    void saveAll(List<EventEntity> events);
+
+    // like saveAll, but skips events that conflict with a stored one and returns the inserted ones
+    List<EventEntity> saveAllIfAbsent(List<EventEntity> events);
+
+    // the STARTED WORKFLOW event of each of the workflows that has one, by workflow id
+    Map<String, EventEntity> getStartedWorkflows(Collection<String> workflowIds);
+
+    // events appended through this store by this node
+    EventFeed feed();
+
+    WorkflowSnapshot getSnapshot(String workflowId);
+
+    // keeps the existing snapshot if it is at the same or a later correlation number
+    void saveSnapshot(WorkflowSnapshot snapshot);
+}
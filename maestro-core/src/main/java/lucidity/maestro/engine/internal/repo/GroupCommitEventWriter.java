@@ -0,0 +1,158 @@
+package lucidity.maestro.engine.internal.repo;
+
+import lucidity.maestro.engine.internal.config.ExecutorConfiguration;
+import lucidity.maestro.engine.internal.entity.EventEntity;
+import lucidity.maestro.engine.internal.exception.WorkflowCorrelationStatusConflict;
+import lucidity.maestro.engine.internal.exception.WorkflowSequenceConflict;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static lucidity.maestro.engine.internal.repo.SqlQueries.INSERT_EVENT_IGNORING_CONFLICTS;
+import static lucidity.maestro.engine.internal.repo.SqlQueries.SELECT_EVENT_BY_CORRELATION_NO;
+
+/**
+ * Collects events from concurrent writers and inserts them as one JDBC batch per transaction,
+ * so many callers share a single commit. Each caller blocks until the batch holding its event
+ * is committed and gets the same conflict exceptions as a direct insert.
+ */
+public class GroupCommitEventWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupCommitEventWriter.class);
+
+    private final DataSource dataSource;
+    private final int maxBatchSize;
+    private final BlockingQueue<PendingEvent> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService flushers;
+
+    public GroupCommitEventWriter(DataSource dataSource, int maxBatchSize, int flusherThreads) {
+        if (maxBatchSize < 1 || flusherThreads < 1) {
+            throw new IllegalArgumentException("maxBatchSize and flusherThreads must be positive");
+        }
+        this.dataSource = dataSource;
+        this.maxBatchSize = maxBatchSize;
+        this.flushers = Executors.newFixedThreadPool(flusherThreads, ExecutorConfiguration.daemonThreads("maestro-group-commit"));
+
+        for (int i = 0; i < flusherThreads; i++) {
+            flushers.submit(this::flushLoop);
+        }
+    }
+
+    public void save(EventEntity eventEntity) throws SQLException {
+        PendingEvent pendingEvent = new PendingEvent(eventEntity, new CompletableFuture<>());
+        queue.add(pendingEvent);
+
+        try {
+            pendingEvent.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            if (e.getCause() instanceof SQLException sqlException) throw sqlException;
+            throw e;
+        }
+    }
+
+    private void flushLoop() {
+        List<PendingEvent> batch = new ArrayList<>(maxBatchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                logger.error("Unexpected error while flushing event batch", e);
+                batch.forEach(pendingEvent -> pendingEvent.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingEvent> batch) {
+        // in workflow id order like EventRepo.inWorkflowOrder, since flushers insert concurrently
+        batch.sort(Comparator.comparing(pendingEvent -> pendingEvent.eventEntity().workflowId()));
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                int[] insertCounts = insertBatch(connection, batch);
+                List<RuntimeException> conflicts = classifyConflicts(connection, batch, insertCounts);
+                connection.commit();
+
+                for (int i = 0; i < batch.size(); i++) {
+                    if (conflicts.get(i) == null) batch.get(i).result().complete(null);
+                    else batch.get(i).result().completeExceptionally(conflicts.get(i));
+                }
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.error("Database access error while inserting batch of {} events", batch.size(), e);
+            batch.forEach(pendingEvent -> pendingEvent.result().completeExceptionally(e));
+        }
+    }
+
+    private static int[] insertBatch(Connection connection, List<PendingEvent> batch) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_EVENT_IGNORING_CONFLICTS)) {
+            for (PendingEvent pendingEvent : batch) {
+                EventRepo.bindEvent(preparedStatement, pendingEvent.eventEntity());
+                preparedStatement.addBatch();
+            }
+            return preparedStatement.executeBatch();
+        }
+    }
+
+    // a row skipped by ON CONFLICT DO NOTHING violated one of the unique indexes; find out which one
+    private static List<RuntimeException> classifyConflicts(Connection connection, List<PendingEvent> batch, int[] insertCounts) throws SQLException {
+        List<RuntimeException> conflicts = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (insertCounts[i] > 0) {
+                conflicts.add(null);
+                continue;
+            }
+
+            EventEntity eventEntity = batch.get(i).eventEntity();
+            if (eventEntity.correlationNumber() != null && correlationStatusExists(connection, eventEntity)) {
+                logger.debug("Violation of unique index: event_unique_workflow_correlation_status");
+                conflicts.add(new WorkflowCorrelationStatusConflict("Event with workflowId: " + eventEntity.workflowId() +
+                        ", correlationNumber: " + eventEntity.correlationNumber() + ", status: " + eventEntity.status() + " already exists"));
+            } else {
+                logger.debug("Violation of unique index: event_unique_workflow_sequence");
+                conflicts.add(new WorkflowSequenceConflict("Event with workflowId: " + eventEntity.workflowId() +
+                        ", sequenceNumber: " + eventEntity.sequenceNumber() + " already exists"));
+            }
+        }
+        return conflicts;
+    }
+
+    private static boolean correlationStatusExists(Connection connection, EventEntity eventEntity) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(SELECT_EVENT_BY_CORRELATION_NO)) {
+            preparedStatement.setString(1, eventEntity.workflowId());
+            preparedStatement.setLong(2, eventEntity.correlationNumber());
+            preparedStatement.setString(3, eventEntity.status().name());
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return resultSet.next();
+            }
+        }
+    }
+
+    private record PendingEvent(EventEntity eventEntity, CompletableFuture<Void> result) {
+    }
+}
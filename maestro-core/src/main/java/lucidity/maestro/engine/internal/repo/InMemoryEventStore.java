@@ -0,0 +1,504 @@
+package lucidity.maestro.engine.internal.repo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.github.resilience4j.retry.Retry;
+import lucidity.maestro.engine.internal.config.RetryConfiguration;
+import lucidity.maestro.engine.internal.config.TimeoutRecoveryPolicy;
+import lucidity.maestro.engine.internal.dto.TimeoutClaim;
+import lucidity.maestro.engine.internal.dto.WorkflowPage;
+import lucidity.maestro.engine.internal.dto.WorkflowQuery;
+import lucidity.maestro.engine.internal.entity.*;
+import lucidity.maestro.engine.internal.exception.WorkflowCorrelationStatusConflict;
+import lucidity.maestro.engine.internal.exception.WorkflowSequenceConflict;
+import lucidity.maestro.engine.internal.metrics.EngineMetrics;
+import lucidity.maestro.engine.internal.util.Json;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Heap-only {@link EventStore}. Workflows are spread over a fixed number of lock stripes, so writers
+ * of different workflows rarely contend while all operations on one workflow stay serialized.
+ */
+public class InMemoryEventStore implements EventStore {
+
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final Map<String, WorkflowEvents> workflows = new ConcurrentHashMap<>();
+    private final Map<String, WorkflowSnapshot> snapshots = new ConcurrentHashMap<>();
+    // the in-memory counterpart of the event_deadline table
+    private final NavigableMap<Deadline, EventEntity> deadlines = new ConcurrentSkipListMap<>();
+    // the in-memory counterpart of the workflow_summary start index, newest first
+    private final NavigableSet<WorkflowStart> workflowStarts = new ConcurrentSkipListSet<>();
+    private final ReadWriteLock[] stripes;
+    private final EventFeed feed = new EventFeed();
+    private final EngineMetrics metrics;
+
+    public InMemoryEventStore() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public InMemoryEventStore(EngineMetrics metrics) {
+        this(DEFAULT_STRIPES, metrics);
+    }
+
+    public InMemoryEventStore(int stripes) {
+        this(stripes, EngineMetrics.NOOP);
+    }
+
+    public InMemoryEventStore(int stripes, EngineMetrics metrics) {
+        this.metrics = metrics;
+        this.stripes = new ReadWriteLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    @Override
+    public WorkflowPage getWorkflows(WorkflowQuery query) {
+        NavigableSet<WorkflowStart> candidates = query.after() == null ? workflowStarts
+                : workflowStarts.tailSet(new WorkflowStart(query.after().startTimestamp(), query.after().workflowId()), false);
+
+        List<WorkflowModel> workflowModels = new ArrayList<>();
+        for (WorkflowStart start : candidates) {
+            if (query.startedBefore() != null && !start.timestamp().isBefore(query.startedBefore())) continue;
+            if (query.startedAfter() != null && start.timestamp().isBefore(query.startedAfter())) break;
+
+            WorkflowModel workflowModel = read(start.workflowId(), InMemoryEventStore::toWorkflowModel);
+            if (query.status() != null && workflowModel.status() != query.status()) continue;
+            if (query.className() != null && !query.className().equals(workflowModel.className())) continue;
+
+            workflowModels.add(workflowModel);
+            // one more than the page, to tell whether there is a next one
+            if (workflowModels.size() > query.limit()) break;
+        }
+        return WorkflowPage.of(workflowModels, query.limit());
+    }
+
+    private static WorkflowModel toWorkflowModel(WorkflowEvents events) {
+        StoredEvent started = events.find(Category.WORKFLOW, Status.STARTED);
+        StoredEvent ended = events.find(Category.WORKFLOW, Status.COMPLETED);
+        if (ended == null) ended = events.find(Category.WORKFLOW, Status.FAILED);
+
+        return new WorkflowModel(
+                started.entity().workflowId(), started.entity().className(), started.entity().functionName(),
+                ended != null ? ended.entity().status() : Status.STARTED,
+                started.timestamp(), ended != null ? ended.timestamp() : null,
+                started.entity().data(), ended != null ? ended.entity().data() : null,
+                events.ordered.size()
+        );
+    }
+
+    @Override
+    public List<EventModel> get(String workflowId) {
+        return read(workflowId, events -> {
+            List<EventModel> eventModels = new ArrayList<>();
+            for (StoredEvent started : events.ordered) {
+                Status status = started.entity().status();
+                if (status != Status.STARTED && status != Status.RECEIVED) continue;
+
+                StoredEvent completed = events.byCorrelation.get(new CorrelationKey(started.entity().correlationNumber(), Status.COMPLETED));
+                eventModels.add(new EventModel(
+                        workflowId, started.entity().category(), started.entity().className(), started.entity().functionName(),
+                        started.entity().correlationNumber(), started.entity().sequenceNumber(), started.timestamp(), completed != null ? completed.timestamp() : null,
+                        started.entity().data(), completed != null ? completed.entity().data() : null
+                ));
+            }
+            eventModels.sort(Comparator.comparing(EventModel::startTimestamp));
+            return eventModels;
+        }, List.of());
+    }
+
+    @Override
+    public List<EventEntity> getHistory(String workflowId, Long afterSequenceNumber) {
+        return read(workflowId, events -> events.ordered.stream()
+                .map(StoredEvent::entity)
+                .filter(event -> event.sequenceNumber() > afterSequenceNumber)
+                .toList(), List.of());
+    }
+
+    @Override
+    public EventEntity get(String workflowId, Long correlationNumber, Status status) {
+        return read(workflowId, events -> {
+            StoredEvent event = events.byCorrelation.get(new CorrelationKey(correlationNumber, status));
+            return event != null ? event.entity() : null;
+        }, null);
+    }
+
+    @Override
+    public EventEntity get(String workflowId, Category category, Status status) {
+        return read(workflowId, events -> {
+            StoredEvent event = events.find(category, status);
+            return event != null ? event.entity() : null;
+        }, null);
+    }
+
+    @Override
+    public List<EventEntity> getSignals(String workflowId, Long sequenceNumber) {
+        return read(workflowId, events -> {
+            long previousCompleted = 0L;
+            for (StoredEvent event : events.ordered) {
+                if (event.entity().sequenceNumber() >= sequenceNumber) break;
+                if (event.entity().status() == Status.COMPLETED) previousCompleted = event.entity().sequenceNumber();
+            }
+
+            List<EventEntity> signals = new ArrayList<>();
+            for (StoredEvent event : events.ordered) {
+                if (event.entity().sequenceNumber() >= sequenceNumber) break;
+                if (event.entity().category() == Category.SIGNAL && event.entity().sequenceNumber() > previousCompleted) {
+                    signals.add(event.entity());
+                }
+            }
+            return signals;
+        }, List.of());
+    }
+
+    @Override
+    public List<TimeoutClaim> claimTimedOutEvents(TimeoutRecoveryPolicy policy) {
+        Instant now = Instant.now();
+        // the due deadline with the lowest correlation number per workflow, like CLAIM_TIMED_OUT_EVENTS
+        Map<String, Deadline> due = new LinkedHashMap<>();
+        for (Deadline deadline : deadlines.keySet()) {
+            if (deadline.deadline().isAfter(now)) break;
+            if (due.size() == TIMED_OUT_EVENTS_LIMIT && !due.containsKey(deadline.workflowId())) continue;
+            due.merge(deadline.workflowId(), deadline, (first, other) ->
+                    first.correlationNumber() <= other.correlationNumber() ? first : other);
+        }
+
+        List<TimeoutClaim> claims = new ArrayList<>();
+        for (Deadline deadline : due.values()) {
+            TimeoutClaim claim = write(deadline.workflowId(), events -> claim(events, deadline, now, policy));
+            if (claim != null) claims.add(claim);
+        }
+        return claims;
+    }
+
+    // null if the deadline was completed or claimed since it was read; the last attempt drops it like the
+    // event_deadline table moves it to infinity
+    private TimeoutClaim claim(WorkflowEvents events, Deadline deadline, Instant now, TimeoutRecoveryPolicy policy) {
+        if (!deadline.equals(events.deadlines.get(deadline.correlationNumber()))) return null;
+        EventEntity entity = deadlines.remove(deadline);
+
+        int attempt = deadline.attempts() + 1;
+        if (attempt >= policy.maxAttempts()) {
+            events.deadlines.remove(deadline.correlationNumber());
+        } else {
+            Deadline next = new Deadline(now.plus(policy.backoff(attempt)), deadline.workflowId(), deadline.correlationNumber(), attempt);
+            events.deadlines.put(deadline.correlationNumber(), next);
+            deadlines.put(next, entity);
+        }
+        return new TimeoutClaim(entity, attempt);
+    }
+
+    @Override
+    public Long getNextSequenceNumber(String workflowId) {
+        return write(workflowId, events -> ++events.lastSequenceNumber);
+    }
+
+    @Override
+    public Map<String, Long> reserveSequenceNumbers(Map<String, Integer> counts) {
+        Map<String, Long> firstSequenceNumbers = new HashMap<>();
+        counts.forEach((workflowId, count) -> firstSequenceNumbers.put(workflowId, write(workflowId, events -> {
+            long first = events.lastSequenceNumber + 1;
+            events.lastSequenceNumber += count;
+            return first;
+        })));
+        return firstSequenceNumbers;
+    }
+
+    @Override
+    public void saveAll(List<EventEntity> events) {
+        saveAll(events, false);
+    }
+
+    @Override
+    public void saveAllWithNextSequenceNumbers(List<EventEntity> events) {
+        saveAll(events, true);
+    }
+
+    // all or nothing like the batch insert of EventRepo, so every event is checked before any is stored
+    private void saveAll(List<EventEntity> batchEvents, boolean allocateSequenceNumbers) {
+        // locked in index order, so batches sharing stripes can't deadlock
+        int[] lockedStripes = batchEvents.stream().mapToInt(event -> stripeIndexOf(event.workflowId())).distinct().sorted().toArray();
+        for (int stripe : lockedStripes) stripes[stripe].writeLock().lock();
+
+        List<EventEntity> stored = new ArrayList<>();
+        try {
+            List<EventEntity> events = allocateSequenceNumbers ? withNextSequenceNumbers(batchEvents) : batchEvents;
+            // the keys of the batch so far, to catch events conflicting with each other
+            Map<String, WorkflowEvents> batch = new HashMap<>();
+            for (EventEntity event : events) {
+                WorkflowEvents existing = workflows.get(event.workflowId());
+                if (existing != null) checkAbsent(existing, event);
+                WorkflowEvents batched = batch.computeIfAbsent(event.workflowId(), id -> new WorkflowEvents());
+                checkAbsent(batched, event);
+                if (event.correlationNumber() != null) {
+                    batched.byCorrelation.put(new CorrelationKey(event.correlationNumber(), event.status()), null);
+                }
+                batched.sequenceNumbers.add(event.sequenceNumber());
+            }
+            for (EventEntity event : events) {
+                stored.add(insert(workflows.computeIfAbsent(event.workflowId(), id -> new WorkflowEvents()), event));
+            }
+        } finally {
+            for (int stripe : lockedStripes) stripes[stripe].writeLock().unlock();
+        }
+        feed.publish(stored);
+    }
+
+    @Override
+    public List<EventEntity> saveAllIfAbsent(List<EventEntity> events) {
+        List<EventEntity> inserted = new ArrayList<>();
+        for (EventEntity event : events) {
+            try {
+                save(event);
+                inserted.add(event);
+            } catch (WorkflowCorrelationStatusConflict | WorkflowSequenceConflict e) {
+                // already stored
+            }
+        }
+        return inserted;
+    }
+
+    // guarded by the stripe locks of the workflows
+    private List<EventEntity> withNextSequenceNumbers(List<EventEntity> events) {
+        Map<String, Long> lastSequenceNumbers = new HashMap<>();
+        List<EventEntity> numbered = new ArrayList<>(events.size());
+        for (EventEntity event : events) {
+            long last = lastSequenceNumbers.computeIfAbsent(event.workflowId(), workflowId -> {
+                WorkflowEvents existing = workflows.get(workflowId);
+                return existing != null ? existing.lastSequenceNumber : 0L;
+            });
+            lastSequenceNumbers.put(event.workflowId(), last + 1);
+            numbered.add(event.withSequenceNumber(last + 1));
+        }
+        return numbered;
+    }
+
+    @Override
+    public EventEntity saveWithNextSequenceNumber(EventEntity event) {
+        EventEntity stored = write(event.workflowId(), events -> {
+            EventEntity numbered = event.withSequenceNumber(events.lastSequenceNumber + 1);
+            checkAbsent(events, numbered);
+            return insert(events, numbered);
+        });
+        feed.publish(List.of(stored));
+        return stored;
+    }
+
+    @Override
+    public Map<String, EventEntity> getStartedWorkflows(Collection<String> workflowIds) {
+        Map<String, EventEntity> startedWorkflows = new HashMap<>();
+        for (String workflowId : workflowIds) {
+            EventEntity started = get(workflowId, Category.WORKFLOW, Status.STARTED);
+            if (started != null) startedWorkflows.put(workflowId, started);
+        }
+        return startedWorkflows;
+    }
+
+    @Override
+    public void saveWithRetry(Supplier<EventEntity> eventSupplier) {
+        try {
+            Retry.decorateCheckedRunnable(RetryConfiguration.getRetry(), () -> {
+                try {
+                    save(eventSupplier.get());
+                } catch (WorkflowSequenceConflict e) {
+                    metrics.conflict("sequence");
+                    throw e;
+                } catch (WorkflowCorrelationStatusConflict e) {
+                    metrics.conflict("correlation_status");
+                    throw e;
+                }
+            }).run();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } catch (Throwable t) {
+            throw new Error(t);
+        }
+    }
+
+    @Override
+    public WorkflowSnapshot getSnapshot(String workflowId) {
+        return snapshots.get(workflowId);
+    }
+
+    @Override
+    public EventFeed feed() {
+        return feed;
+    }
+
+    @Override
+    public void saveSnapshot(WorkflowSnapshot snapshot) {
+        snapshots.merge(snapshot.workflowId(), snapshot, (existing, candidate) ->
+                existing.correlationNumber() < candidate.correlationNumber() ? candidate : existing);
+    }
+
+    private void save(EventEntity eventEntity) {
+        EventEntity stored = write(eventEntity.workflowId(), events -> {
+            checkAbsent(events, eventEntity);
+            return insert(events, eventEntity);
+        });
+        feed.publish(List.of(stored));
+    }
+
+    // the in-memory counterpart of the unique indexes on correlation_number and status, and on sequence_number
+    private static void checkAbsent(WorkflowEvents events, EventEntity eventEntity) {
+        if (eventEntity.correlationNumber() != null
+                && events.byCorrelation.containsKey(new CorrelationKey(eventEntity.correlationNumber(), eventEntity.status()))) {
+            throw new WorkflowCorrelationStatusConflict("Event with workflowId: " + eventEntity.workflowId() +
+                    ", correlationNumber: " + eventEntity.correlationNumber() + ", status: " + eventEntity.status() + " already exists");
+        }
+        if (events.sequenceNumbers.contains(eventEntity.sequenceNumber())) {
+            throw new WorkflowSequenceConflict("Event with workflowId: " + eventEntity.workflowId() +
+                    ", sequenceNumber: " + eventEntity.sequenceNumber() + " already exists");
+        }
+    }
+
+    private EventEntity insert(WorkflowEvents events, EventEntity eventEntity) {
+        Instant timestamp = Instant.now();
+        StoredEvent storedEvent = new StoredEvent(new EventEntity(
+                eventEntity.id(), eventEntity.workflowId(), eventEntity.correlationNumber(),
+                eventEntity.sequenceNumber(), eventEntity.category(), eventEntity.className(),
+                eventEntity.functionName(), eventEntity.data(), eventEntity.status(),
+                timestamp.toString(), eventEntity.metadata()
+        ), timestamp);
+
+        if (eventEntity.correlationNumber() != null) {
+            events.byCorrelation.put(new CorrelationKey(eventEntity.correlationNumber(), eventEntity.status()), storedEvent);
+        }
+        events.sequenceNumbers.add(eventEntity.sequenceNumber());
+        events.insertOrdered(storedEvent);
+        trackDeadline(events, storedEvent);
+        if (eventEntity.category() == Category.WORKFLOW && eventEntity.status() == Status.STARTED) {
+            workflowStarts.add(new WorkflowStart(timestamp, eventEntity.workflowId()));
+        }
+        events.lastSequenceNumber = Math.max(events.lastSequenceNumber, eventEntity.sequenceNumber());
+        return storedEvent.entity();
+    }
+
+    // mirrors the event_deadline trigger
+    private void trackDeadline(WorkflowEvents events, StoredEvent storedEvent) {
+        EventEntity entity = storedEvent.entity();
+        if (entity.status() == Status.COMPLETED) {
+            Deadline deadline = events.deadlines.remove(entity.correlationNumber());
+            if (deadline != null) deadlines.remove(deadline);
+            return;
+        }
+        if (entity.status() != Status.STARTED) return;
+        if (entity.category() != Category.WORKFLOW && entity.category() != Category.ACTIVITY) return;
+
+        Duration timeout = startedToCompletedTimeout(entity);
+        if (timeout == null) return;
+        Deadline deadline = new Deadline(storedEvent.timestamp().plus(timeout), entity.workflowId(), entity.correlationNumber(), 0);
+        events.deadlines.put(entity.correlationNumber(), deadline);
+        deadlines.put(deadline, entity);
+    }
+
+    private static Duration startedToCompletedTimeout(EventEntity eventEntity) {
+        JsonNode metadata = Json.deserialize(eventEntity.metadata(), JsonNode.class);
+        if (metadata == null || !metadata.hasNonNull("startedToCompletedTimeout")) return null;
+        return Duration.parse(metadata.get("startedToCompletedTimeout").asText());
+    }
+
+    private <T> T read(String workflowId, Function<WorkflowEvents, T> function) {
+        return read(workflowId, function, null);
+    }
+
+    private <T> T read(String workflowId, Function<WorkflowEvents, T> function, T absent) {
+        WorkflowEvents events = workflows.get(workflowId);
+        if (events == null) return absent;
+
+        ReadWriteLock lock = stripeOf(workflowId);
+        lock.readLock().lock();
+        try {
+            return function.apply(events);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <T> T write(String workflowId, Function<WorkflowEvents, T> function) {
+        WorkflowEvents events = workflows.computeIfAbsent(workflowId, id -> new WorkflowEvents());
+
+        ReadWriteLock lock = stripeOf(workflowId);
+        lock.writeLock().lock();
+        try {
+            return function.apply(events);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private ReadWriteLock stripeOf(String workflowId) {
+        return stripes[stripeIndexOf(workflowId)];
+    }
+
+    private int stripeIndexOf(String workflowId) {
+        return Math.floorMod(workflowId.hashCode(), stripes.length);
+    }
+
+    private record CorrelationKey(Long correlationNumber, Status status) {
+    }
+
+    private record StoredEvent(EventEntity entity, Instant timestamp) {
+    }
+
+    private record WorkflowStart(Instant timestamp, String workflowId) implements Comparable<WorkflowStart> {
+
+        private static final Comparator<WorkflowStart> ORDER = Comparator.comparing(WorkflowStart::timestamp)
+                .thenComparing(WorkflowStart::workflowId)
+                .reversed();
+
+        @Override
+        public int compareTo(WorkflowStart other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    private record Deadline(Instant deadline, String workflowId, Long correlationNumber, int attempts) implements Comparable<Deadline> {
+
+        private static final Comparator<Deadline> ORDER = Comparator.comparing(Deadline::deadline)
+                .thenComparing(Deadline::workflowId)
+                .thenComparing(Deadline::correlationNumber);
+
+        @Override
+        public int compareTo(Deadline other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    // guarded by the stripe lock of its workflow
+    private static class WorkflowEvents {
+        private final List<StoredEvent> ordered = new ArrayList<>();
+        private final Map<CorrelationKey, StoredEvent> byCorrelation = new HashMap<>();
+        private final Set<Long> sequenceNumbers = new HashSet<>();
+        private final Map<Long, Deadline> deadlines = new HashMap<>();
+        private long lastSequenceNumber = 0L;
+
+        private StoredEvent find(Category category, Status status) {
+            for (StoredEvent event : ordered) {
+                if (event.entity().category() == category && event.entity().status() == status) return event;
+            }
+            return null;
+        }
+
+        // sequence numbers are allocated before the insert, so events may arrive slightly out of order
+        private void insertOrdered(StoredEvent storedEvent) {
+            int index = ordered.size();
+            while (index > 0 && ordered.get(index - 1).entity().sequenceNumber() > storedEvent.entity().sequenceNumber()) {
+                index--;
+            }
+            ordered.add(index, storedEvent);
+        }
+    }
+}
@@ -8,6 +8,9 @@ public class SqlQueries {
                         VALUES (?, ?, ?::bigint, ?::bigint, ?::category, ?, ?, ?::json, ?::status, ?::json)
             """;
 
+    //language=SQL
+    public static final String INSERT_EVENT_IGNORING_CONFLICTS = INSERT_EVENT + "ON CONFLICT DO NOTHING";
+
     //language=SQL
     public static final String SELECT_EVENT = """
             SELECT * FROM event WHERE workflow_id = ? AND category = ?::category AND status = ?::status
@@ -19,21 +22,43 @@ public class SqlQueries {
             """;
 
     //language=SQL
-    public static final String SELECT_WORKFLOWS = """
-            SELECT started.workflow_id,
-                   started.class_name,
-                   started.function_name,
-                   started.timestamp   AS start_timestamp,
-                   completed.timestamp AS end_timestamp,
-                   started.data AS input,
-                   completed.data AS output
-            FROM event AS started LEFT JOIN event AS completed
-                 ON started.workflow_id = completed.workflow_id
-                     AND completed.category = 'WORKFLOW'
-                     AND completed.status = 'COMPLETED'
-            WHERE started.category = 'WORKFLOW'
-              AND started.status = 'STARTED'
-            ORDER BY started.timestamp;
+    public static final String SELECT_HISTORY = """
+            SELECT * FROM event WHERE workflow_id = ? AND sequence_number > ?::bigint ORDER BY sequence_number
+            """;
+
+    //language=SQL
+    public static final String SELECT_WORKFLOW_SUMMARIES = """
+            SELECT summary.workflow_id,
+                   summary.class_name,
+                   summary.function_name,
+                   summary.status,
+                   summary.start_timestamp,
+                   summary.end_timestamp,
+                   started.data   AS input,
+                   completed.data AS output,
+                   summary.event_count
+            FROM workflow_summary AS summary
+                     LEFT JOIN event AS started ON started.id = summary.started_event_id
+                     LEFT JOIN event AS completed ON completed.id = summary.completed_event_id
+            WHERE summary.start_timestamp IS NOT NULL
+            """;
+
+    // optional filters appended to SELECT_WORKFLOW_SUMMARIES, followed by WORKFLOW_SUMMARIES_PAGE
+    //language=SQL
+    public static final String WORKFLOW_SUMMARIES_STATUS_FILTER = "AND summary.status = ?::status\n";
+    //language=SQL
+    public static final String WORKFLOW_SUMMARIES_CLASS_FILTER = "AND summary.class_name = ?\n";
+    //language=SQL
+    public static final String WORKFLOW_SUMMARIES_STARTED_AFTER_FILTER = "AND summary.start_timestamp >= ?\n";
+    //language=SQL
+    public static final String WORKFLOW_SUMMARIES_STARTED_BEFORE_FILTER = "AND summary.start_timestamp < ?\n";
+    //language=SQL
+    public static final String WORKFLOW_SUMMARIES_CURSOR_FILTER = "AND (summary.start_timestamp, summary.workflow_id) < (?, ?)\n";
+
+    //language=SQL
+    public static final String WORKFLOW_SUMMARIES_PAGE = """
+            ORDER BY summary.start_timestamp DESC, summary.workflow_id DESC
+            LIMIT ?
             """;
 
     //language=SQL
@@ -42,6 +67,8 @@ public class SqlQueries {
                    started.category,
                    started.class_name,
                    started.function_name,
+                   started.correlation_number,
+                   started.sequence_number,
                    started.timestamp   AS start_timestamp,
                    completed.timestamp AS end_timestamp,
                    started.data        AS input,
@@ -58,7 +85,55 @@ public class SqlQueries {
             """;
 
     //language=SQL
-    public static final String MAX_SEQUENCE_NUMBER = "SELECT max(sequence_number) FROM event WHERE workflow_id = ?";
+    public static final String NEXT_SEQUENCE_NUMBER = """
+            INSERT INTO workflow_sequence (workflow_id, sequence_number)
+            VALUES (?, 1)
+            ON CONFLICT (workflow_id) DO UPDATE SET sequence_number = workflow_sequence.sequence_number + 1
+            RETURNING sequence_number
+            """;
+
+    // the counter row stays locked until the event is inserted, so numbers are stored in the order they are allocated
+    //language=SQL
+    public static final String INSERT_EVENT_WITH_NEXT_SEQUENCE_NUMBER = """
+            WITH next AS (INSERT INTO workflow_sequence (workflow_id, sequence_number)
+                          VALUES (?, 1)
+                          ON CONFLICT (workflow_id) DO UPDATE SET sequence_number = workflow_sequence.sequence_number + 1
+                          RETURNING sequence_number)
+            INSERT INTO event
+                        (id, workflow_id, correlation_number, sequence_number, category, class_name, function_name, data, status, metadata)
+                        SELECT ?, ?, ?::bigint, next.sequence_number, ?::category, ?, ?, ?::json, ?::status, ?::json FROM next
+            RETURNING *
+            """;
+
+    //language=SQL
+    public static final String RESERVE_SEQUENCE_NUMBERS = """
+            INSERT INTO workflow_sequence (workflow_id, sequence_number)
+            SELECT * FROM unnest(?::varchar[], ?::bigint[])
+            ON CONFLICT (workflow_id) DO UPDATE SET sequence_number = workflow_sequence.sequence_number + EXCLUDED.sequence_number
+            RETURNING workflow_id, sequence_number
+            """;
+
+    //language=SQL
+    public static final String SELECT_STARTED_WORKFLOWS = """
+            SELECT * FROM event WHERE workflow_id = ANY (?) AND category = 'WORKFLOW' AND status = 'STARTED'
+            """;
+
+    //language=SQL
+    public static final String SELECT_SNAPSHOT = """
+            SELECT * FROM workflow_snapshot WHERE workflow_id = ?
+            """;
+
+    //language=SQL
+    public static final String UPSERT_SNAPSHOT = """
+            INSERT INTO workflow_snapshot (workflow_id, correlation_number, sequence_number, state)
+            VALUES (?, ?::bigint, ?::bigint, ?::json)
+            ON CONFLICT (workflow_id) DO UPDATE
+                SET correlation_number = EXCLUDED.correlation_number,
+                    sequence_number    = EXCLUDED.sequence_number,
+                    state              = EXCLUDED.state,
+                    timestamp          = CURRENT_TIMESTAMP
+                WHERE workflow_snapshot.correlation_number < EXCLUDED.correlation_number
+            """;
 
     //language=SQL
     public static final String SELECT_SIGNALS = """
@@ -74,15 +149,32 @@ public class SqlQueries {
               AND sequence_number < ?
             """;
 
+    // claims the due deadline with the lowest correlation number of up to ? workflows, skipping those another node
+    // is claiming, and moves each to its next attempt; the last attempt moves it to infinity. A replay covers the
+    // whole workflow, so its other due deadlines wait for a later poll instead of spending an attempt on this one
     //language=SQL
-    public static final String SELECT_TIMED_OUT_EVENTS = """
-                    SELECT DISTINCT ON (e1.workflow_id) e1.*
-                    FROM event e1
-                    WHERE e1.status = 'STARTED' AND e1.category in ('WORKFLOW', 'ACTIVITY') AND (e1.timestamp < CURRENT_TIMESTAMP - (e1.metadata->>'startedToCompletedTimeout')::interval)
-                      AND NOT EXISTS (
-                        SELECT 1
-                        FROM event e2
-                        WHERE e1.workflow_id = e2.workflow_id AND e1.correlation_number = e2.correlation_number
-                          AND e2.status = 'COMPLETED');
+    public static final String CLAIM_TIMED_OUT_EVENTS = """
+            WITH due AS (SELECT workflow_id, correlation_number
+                         FROM event_deadline AS candidate
+                         WHERE deadline <= CURRENT_TIMESTAMP
+                           AND NOT EXISTS (SELECT 1
+                                           FROM event_deadline AS earlier
+                                           WHERE earlier.workflow_id = candidate.workflow_id
+                                             AND earlier.correlation_number < candidate.correlation_number
+                                             AND earlier.deadline <= CURRENT_TIMESTAMP)
+                         ORDER BY deadline
+                         LIMIT ? FOR UPDATE SKIP LOCKED),
+                 claimed AS (UPDATE event_deadline
+                             SET attempts = event_deadline.attempts + 1,
+                                 deadline = CASE
+                                                WHEN event_deadline.attempts + 1 >= ? THEN 'infinity'::timestamptz
+                                                ELSE CURRENT_TIMESTAMP + LEAST(? * power(2, event_deadline.attempts), ?) * INTERVAL '1 millisecond'
+                                     END
+                             FROM due
+                             WHERE event_deadline.workflow_id = due.workflow_id
+                               AND event_deadline.correlation_number = due.correlation_number
+                             RETURNING event_deadline.event_id, event_deadline.attempts)
+            SELECT event.*, claimed.attempts AS attempt
+            FROM claimed JOIN event ON event.id = claimed.event_id
             """;
 }
@@ -1,6 +1,8 @@
 package lucidity.maestro.engine.internal.util;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -8,6 +10,9 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Type;
 import java.time.Duration;
 
@@ -30,6 +35,15 @@ public class Json {
         }
     }
 
+    // writes straight to the stream, with the same configuration as serialize
+    public static JsonGenerator generator(OutputStream outputStream) {
+        try {
+            return mapper.getFactory().createGenerator(outputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     public static <T> T deserialize(String jsonString, Class<T> clazz) {
         if (jsonString == null) return null;
         try {
@@ -51,6 +65,36 @@ public class Json {
         }
     }
 
+    public static <T> T deserialize(String jsonString, TypeReference<T> typeReference) {
+        if (jsonString == null) return null;
+        try {
+            return mapper.readValue(jsonString, typeReference);
+        } catch (Exception e) {
+            logger.error("Error deserializing string: {}", jsonString, e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static <T> T deserialize(String jsonString, JavaType javaType) {
+        if (jsonString == null) return null;
+        try {
+            return mapper.readValue(jsonString, javaType);
+        } catch (Exception e) {
+            logger.error("Error deserializing string: {}", jsonString, e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static JavaType javaType(Type type) {
+        return mapper.getTypeFactory().constructType(type);
+    }
+
+    public static <T> T convert(Object value, Type type) {
+        if (value == null) return null;
+        JavaType javaType = mapper.getTypeFactory().constructType(type);
+        return mapper.convertValue(value, javaType);
+    }
+
     private static ObjectMapper initializeObjectMapper() {
         JavaTimeModule module = new JavaTimeModule();
         module.addSerializer(Duration.class, new IsoDurationSerializer());
@@ -0,0 +1,81 @@
+package lucidity.maestro.engine.internal.util;
+
+import com.fasterxml.jackson.databind.JavaType;
+import lucidity.maestro.engine.api.signal.SignalFunction;
+import lucidity.maestro.engine.api.workflow.WorkflowFunction;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Everything the engine needs to replay or dispatch a method, resolved once per class instead of on every call.
+ * The handle takes the target and the arguments as an array, like {@link Method#invoke}.
+ */
+public record MethodDescriptor(
+        Method method, MethodHandle handle, JavaType[] parameterTypes, JavaType returnType,
+        boolean returnsVoid, boolean workflowFunction, boolean signalFunction
+) {
+
+    private static final MethodType SPREAD_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    static MethodDescriptor of(Class<?> owner, Method method) {
+        return new MethodDescriptor(
+                method, spreadHandle(method),
+                Arrays.stream(method.getGenericParameterTypes()).map(Json::javaType).toArray(JavaType[]::new),
+                Json.javaType(method.getGenericReturnType()),
+                method.getReturnType().equals(Void.TYPE),
+                isAnnotatedWith(owner, method, WorkflowFunction.class),
+                isAnnotatedWith(owner, method, SignalFunction.class)
+        );
+    }
+
+    // same contract as Method.invoke, so callers keep unwrapping the cause of an InvocationTargetException
+    public Object invoke(Object target, Object[] args) throws InvocationTargetException {
+        try {
+            return (Object) handle.invokeExact(target, args);
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    // workflow, signal and activity methods take their input as the first parameter
+    public Object[] deserializeArguments(String data) {
+        if (parameterTypes.length == 0) return new Object[]{};
+        return new Object[]{Json.deserialize(data, parameterTypes[0])};
+    }
+
+    public Object deserializeReturnValue(String data) {
+        return Json.deserialize(data, returnType);
+    }
+
+    private static MethodHandle spreadHandle(Method method) {
+        method.trySetAccessible();
+        try {
+            return MethodHandles.lookup().unreflect(method)
+                    .asSpreader(Object[].class, method.getParameterCount())
+                    .asType(SPREAD_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // the annotations live on the interfaces of the implementation
+    private static boolean isAnnotatedWith(Class<?> owner, Method method, Class<? extends Annotation> annotationClass) {
+        for (Class<?> iface : owner.getInterfaces()) {
+            try {
+                Method ifaceMethod = iface.getMethod(method.getName(), method.getParameterTypes());
+                if (ifaceMethod.isAnnotationPresent(annotationClass)) {
+                    return true;
+                }
+            } catch (NoSuchMethodException e) {
+                // Continue checking other interfaces
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,72 @@
+package lucidity.maestro.engine.internal.util;
+
+import lucidity.maestro.engine.api.activity.ActivityInterface;
+import lucidity.maestro.engine.api.signal.SignalFunction;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-class cache of {@link MethodDescriptor}s. Workflow, signal and activity methods are resolved when the
+ * descriptor is first requested, which the engine does at registration time; anything else is resolved on first use.
+ */
+public class TypeDescriptor {
+
+    private static final ClassValue<TypeDescriptor> descriptors = new ClassValue<>() {
+        @Override
+        protected TypeDescriptor computeValue(Class<?> type) {
+            return new TypeDescriptor(type);
+        }
+    };
+
+    private final Class<?> type;
+    private final MethodDescriptor workflowMethod;
+    private final Map<String, MethodDescriptor> methodsByName = new ConcurrentHashMap<>();
+    private final Map<Method, MethodDescriptor> methods = new ConcurrentHashMap<>();
+
+    private TypeDescriptor(Class<?> type) {
+        this.type = type;
+        this.workflowMethod = Arrays.stream(type.getMethods())
+                .filter(method -> "execute".equals(method.getName()))
+                .filter(method -> !method.isBridge())
+                .findFirst()
+                .map(this::method)
+                .orElse(null);
+
+        for (Method method : type.getMethods()) {
+            if (method.isAnnotationPresent(SignalFunction.class)) method(method.getName());
+        }
+        for (Class<?> iface : type.getInterfaces()) {
+            if (!iface.isAnnotationPresent(ActivityInterface.class)) continue;
+            for (Method method : iface.getMethods()) {
+                if (!Modifier.isStatic(method.getModifiers())) method(method);
+            }
+        }
+    }
+
+    public static TypeDescriptor of(Class<?> type) {
+        return descriptors.get(type);
+    }
+
+    public MethodDescriptor workflowMethod() {
+        if (workflowMethod == null) throw new NoSuchElementException("No execute method on " + type.getName());
+        return workflowMethod;
+    }
+
+    public MethodDescriptor method(Method method) {
+        return methods.computeIfAbsent(method, m -> MethodDescriptor.of(type, m));
+    }
+
+    // public method by name, e.g. the signal method recorded in a signal event
+    public MethodDescriptor method(String name) {
+        return methodsByName.computeIfAbsent(name, n -> method(Arrays.stream(type.getMethods())
+                .filter(method -> method.getName().equals(n))
+                .filter(method -> !method.isBridge())
+                .findFirst()
+                .orElseThrow()));
+    }
+}
@@ -1,14 +1,16 @@
 package lucidity.maestro.engine.internal.util;
 
 import lucidity.maestro.engine.api.Maestro;
+import lucidity.maestro.engine.api.activity.Activity;
 import lucidity.maestro.engine.api.activity.ActivityInterface;
+import lucidity.maestro.engine.api.workflow.Snapshot;
 import lucidity.maestro.engine.api.workflow.WorkflowFunction;
 import lucidity.maestro.engine.api.workflow.WorkflowInterface;
 import lucidity.maestro.engine.internal.MaestroImpl;
 import lucidity.maestro.engine.internal.dto.WorkflowContext;
 import lucidity.maestro.engine.internal.entity.EventEntity;
 import lucidity.maestro.engine.api.workflow.WorkflowOptions;
-import lucidity.maestro.engine.internal.repo.EventRepo;
+import lucidity.maestro.engine.internal.repo.EventStore;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
@@ -16,7 +18,9 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -33,26 +37,8 @@ public class Util {
         return METHODS_TO_SKIP.contains(method.getName());
     }
 
-    public static boolean isAnnotatedWith(Method method, Object target, Class<? extends Annotation> annotationClass) {
-        for (Class<?> iface : target.getClass().getInterfaces()) {
-            try {
-                Method ifaceMethod = iface.getMethod(method.getName(), method.getParameterTypes());
-                if (ifaceMethod.isAnnotationPresent(annotationClass)) {
-                    return true;
-                }
-            } catch (NoSuchMethodException e) {
-                // Continue checking other interfaces
-            }
-        }
-        return false;
-    }
-
     public static Method findWorkflowMethod(Class<?> clazz) {
-        return Arrays.stream(clazz.getMethods())
-                .filter(method -> "execute".equals(method.getName()))
-                .filter(method -> !Modifier.isVolatile(method.getModifiers()))
-                .findFirst()
-                .orElseThrow();
+        return TypeDescriptor.of(clazz).workflowMethod().method();
     }
 
     public static Object[] getDefaultArgs(Integer numberOfParameters) {
@@ -83,6 +69,60 @@ public class Util {
         }
     }
 
+    // fields declared by the workflow implementation, i.e. the superclass of the generated subclass
+    public static Map<String, Object> captureWorkflowFields(Object workflow) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        for (Field field : getWorkflowStateFields(workflow)) {
+            field.setAccessible(true);
+            try {
+                fields.put(field.getName(), field.get(workflow));
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return fields;
+    }
+
+    public static void restoreWorkflowFields(Object workflow, Map<String, Object> values) {
+        for (Field field : getWorkflowStateFields(workflow)) {
+            if (!values.containsKey(field.getName())) continue;
+            setField(field, workflow, Json.convert(values.get(field.getName()), field.getGenericType()));
+        }
+    }
+
+    // a @Snapshot workflow has to name a field of its captured state that tells execute which steps to skip
+    public static void checkSnapshotProgress(Class<?> workflowClass) {
+        Snapshot snapshot = workflowClass.getAnnotation(Snapshot.class);
+        if (snapshot == null) return;
+
+        boolean captured = getWorkflowStateFields(workflowClass).stream()
+                .anyMatch(field -> field.getName().equals(snapshot.progress()));
+        if (!captured) throw new IllegalArgumentException("Workflow " + workflowClass.getSimpleName() +
+                " records its progress in " + snapshot.progress() + ", which is not a non-static, non-transient field of it");
+    }
+
+    private static List<Field> getWorkflowStateFields(Object workflow) {
+        return getWorkflowStateFields(workflow.getClass().getSuperclass());
+    }
+
+    private static List<Field> getWorkflowStateFields(Class<?> workflowClass) {
+        return Arrays.stream(workflowClass.getDeclaredFields())
+                .filter(field -> !Modifier.isStatic(field.getModifiers()))
+                .filter(field -> !Modifier.isTransient(field.getModifiers()))
+                .filter(field -> !field.isSynthetic())
+                .filter(field -> !field.isAnnotationPresent(Activity.class))
+                .toList();
+    }
+
+    // a class generated for the given type at compile time, or null if the type was compiled without it
+    public static Class<?> findGeneratedClass(Class<?> clazz, String suffix) {
+        try {
+            return Class.forName(clazz.getName() + suffix, true, clazz.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
     public static Class<?> getActivityInterface(Class<?> clazz) {
         return getAnnotatedInterfaceOfClass(clazz, ActivityInterface.class);
     }
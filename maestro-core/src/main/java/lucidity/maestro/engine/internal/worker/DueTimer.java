@@ -0,0 +1,66 @@
+package lucidity.maestro.engine.internal.worker;
+
+import lucidity.maestro.engine.internal.config.ExecutorConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs an action at each requested time, with one timer armed for the earliest of them. Times are rounded up to
+ * {@link #RESOLUTION_MILLIS}, so a burst of work due together runs the action once.
+ */
+public class DueTimer {
+
+    private static final Logger logger = LoggerFactory.getLogger(DueTimer.class);
+    static final long RESOLUTION_MILLIS = 50;
+
+    private final Runnable action;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(ExecutorConfiguration.daemonThreads("maestro-due-timer"));
+
+    // guarded by this
+    private final NavigableSet<Long> dueTimes = new TreeSet<>();
+    private ScheduledFuture<?> armed;
+    private long armedAt;
+
+    public DueTimer(Runnable action) {
+        this.action = action;
+    }
+
+    public synchronized void wakeAt(Instant dueAt) {
+        long at = Math.floorDiv(dueAt.toEpochMilli() + RESOLUTION_MILLIS - 1, RESOLUTION_MILLIS) * RESOLUTION_MILLIS;
+        if (!dueTimes.add(at)) return;
+        if (armed == null || at < armedAt) arm();
+    }
+
+    private void fire() {
+        synchronized (this) {
+            dueTimes.headSet(System.currentTimeMillis(), true).clear();
+            armed = null;
+            arm();
+        }
+
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            logger.error("wakeup failed", e);
+        }
+    }
+
+    // guarded by this
+    private void arm() {
+        if (armed != null) armed.cancel(false);
+        if (dueTimes.isEmpty()) {
+            armed = null;
+            return;
+        }
+        armedAt = dueTimes.first();
+        armed = scheduler.schedule(this::fire, Math.max(0, armedAt - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,48 @@
+package lucidity.maestro.engine.internal.worker;
+
+import lucidity.maestro.engine.internal.config.ExecutorConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Debounces the executions triggered by signals: the first signal for a workflow schedules one execution after the
+ * window, and signals arriving before it starts are picked up by that same execution, since they're already stored.
+ */
+public class SignalCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SignalCoalescer.class);
+
+    private final Duration window;
+    private final ScheduledExecutorService scheduler;
+    private final Set<String> scheduledWorkflowIds = ConcurrentHashMap.newKeySet();
+
+    public SignalCoalescer(Duration window) {
+        this.window = window;
+        this.scheduler = window.isZero() ? null : Executors.newSingleThreadScheduledExecutor(ExecutorConfiguration.daemonThreads("maestro-signal-coalescer"));
+    }
+
+    public void schedule(String workflowId, Runnable execution) {
+        if (scheduler == null) {
+            execution.run();
+            return;
+        }
+        if (!scheduledWorkflowIds.add(workflowId)) return;
+
+        scheduler.schedule(() -> {
+            // released first, so a signal stored after this point schedules the next execution
+            scheduledWorkflowIds.remove(workflowId);
+            try {
+                execution.run();
+            } catch (RuntimeException e) {
+                logger.error("could not schedule execution of workflow with id: {}", workflowId, e);
+            }
+        }, window.toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
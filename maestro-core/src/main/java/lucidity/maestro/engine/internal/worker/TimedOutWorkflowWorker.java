@@ -1,28 +1,43 @@
 package lucidity.maestro.engine.internal.worker;
 
 import lucidity.maestro.engine.internal.MaestroImpl;
-import lucidity.maestro.engine.internal.entity.EventEntity;
-import lucidity.maestro.engine.internal.repo.EventRepo;
+import lucidity.maestro.engine.internal.config.TimeoutRecoveryPolicy;
+import lucidity.maestro.engine.internal.dto.TimeoutClaim;
+import lucidity.maestro.engine.internal.repo.EventStore;
 import lucidity.maestro.engine.internal.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class TimedOutWorkflowWorker {
     private static final Logger logger = LoggerFactory.getLogger(TimedOutWorkflowWorker.class);
+    public static final Duration POLLING_INTERVAL = Duration.ofSeconds(1);
     private static final AtomicBoolean started = new AtomicBoolean(false);
     private static final ExecutorService executor = Executors.newSingleThreadExecutor();
     private final MaestroImpl maestroImpl;
-    private final EventRepo eventRepo;
+    private final EventStore eventStore;
+    private final TimeoutRecoveryPolicy policy;
+    private final Duration pollingInterval;
+    private final Semaphore wakeups = new Semaphore(0);
 
-    public TimedOutWorkflowWorker(MaestroImpl maestroImpl, EventRepo eventRepo) {
+    public TimedOutWorkflowWorker(MaestroImpl maestroImpl, EventStore eventStore, TimeoutRecoveryPolicy policy, Duration pollingInterval) {
 
         this.maestroImpl = maestroImpl;
-        this.eventRepo = eventRepo;
+        this.eventStore = eventStore;
+        this.policy = policy;
+        this.pollingInterval = pollingInterval;
+    }
+
+    // claims right away instead of at the next poll, e.g. when a deadline notified over the wakeup channel is due
+    public void wakeUp() {
+        wakeups.release();
     }
 
 
@@ -36,19 +51,28 @@ public class TimedOutWorkflowWorker {
 
     public void poll() {
         while (true) {
-            List<EventEntity> timedOutEvents = eventRepo.getTimedOutEvents();
-            timedOutEvents.forEach(this::logAndReplay);
+            // every node polls, but each timed-out event is claimed by one of them per attempt
+            long scanStart = System.nanoTime();
+            List<TimeoutClaim> claims = eventStore.claimTimedOutEvents(policy);
+            maestroImpl.metrics().timeoutScan(scanStart, claims.size());
+            claims.forEach(this::logAndReplay);
 
             try {
-                Thread.sleep(1000);
+                if (wakeups.tryAcquire(pollingInterval.toMillis(), TimeUnit.MILLISECONDS)) wakeups.drainPermits();
             } catch (InterruptedException e) {
                 throw new RuntimeException(e);
             }
         }
     }
 
-    private void logAndReplay(EventEntity workflow) {
-        logger.info("replaying workflow with id: {}", workflow.workflowId());
-        maestroImpl.replayWorkflow(workflow);
+    private void logAndReplay(TimeoutClaim claim) {
+        if (claim.attempt() >= policy.maxAttempts()) {
+            logger.warn("replaying workflow with id: {} for the last time, attempt {} of {}; its timed-out event with correlationNumber: {} is abandoned after this",
+                    claim.event().workflowId(), claim.attempt(), policy.maxAttempts(), claim.event().correlationNumber());
+            maestroImpl.metrics().timeoutAbandoned();
+        } else {
+            logger.info("replaying workflow with id: {}, attempt {} of {}", claim.event().workflowId(), claim.attempt(), policy.maxAttempts());
+        }
+        maestroImpl.replayWorkflow(claim.event());
     }
 }
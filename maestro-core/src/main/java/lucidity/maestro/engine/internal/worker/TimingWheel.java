@@ -0,0 +1,166 @@
+package lucidity.maestro.engine.internal.worker;
+
+import lucidity.maestro.engine.internal.config.ExecutorConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel with one millisecond ticks. Level 0 has a slot per tick, and each slot of a higher
+ * level spans a whole turn of the level below; its timers cascade down when that turn comes up. Adding a timer
+ * is constant time, and the timers expiring in the same tick are handed to the consumer as one batch.
+ * <p>
+ * The wheel only lives in memory, so anything that must survive a restart needs a durable record of its own.
+ */
+public class TimingWheel<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimingWheel.class);
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // the longest delay a timer can be added with, about 4.6 hours
+    public static final Duration HORIZON = Duration.ofMillis(1L << (SLOT_BITS * LEVELS));
+
+    private final Consumer<List<T>> onExpired;
+    private final long startNanos = System.nanoTime();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(ExecutorConfiguration.daemonThreads("maestro-timing-wheel"));
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition added = lock.newCondition();
+
+    // guarded by lock
+    private final List<List<Timer<T>>> slots = new ArrayList<>(LEVELS * SLOTS);
+    private long currentTick = 0;
+    private int size = 0;
+
+    public TimingWheel(Consumer<List<T>> onExpired) {
+        this.onExpired = onExpired;
+        for (int i = 0; i < LEVELS * SLOTS; i++) slots.add(new ArrayList<>());
+        executor.submit(this::run);
+    }
+
+    public void add(Duration delay, T item) {
+        if (delay.compareTo(HORIZON) >= 0) {
+            throw new IllegalArgumentException("Delay must be shorter than " + HORIZON + ", was " + delay);
+        }
+
+        // rounded up, so timers never expire early
+        long expirationTick = (System.nanoTime() - startNanos + delay.toNanos() + TICK_NANOS - 1) / TICK_NANOS;
+        lock.lock();
+        try {
+            // the current tick's slot has already expired
+            place(new Timer<>(expirationTick, item), currentTick + 1);
+            size++;
+            added.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // guarded by lock
+    private void place(Timer<T> timer, long earliestTick) {
+        long expirationTick = Math.max(timer.expirationTick(), earliestTick);
+
+        // the lowest level whose turn contains both the current tick and the expiration
+        int level = 0;
+        while (level < LEVELS - 1 && (expirationTick >> (SLOT_BITS * (level + 1))) != (currentTick >> (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = (int) (expirationTick >> (SLOT_BITS * level)) & SLOT_MASK;
+        slots.get(level * SLOTS + slot).add(timer);
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<T> expired;
+            lock.lock();
+            try {
+                expired = advance(elapsedTicks());
+                if (expired.isEmpty()) {
+                    awaitNextTick();
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                onExpired.accept(expired);
+            } catch (RuntimeException e) {
+                logger.error("failed to handle {} expired timers", expired.size(), e);
+            }
+        }
+    }
+
+    // guarded by lock; moves the wheel up to the given tick and returns what expired on the way
+    private List<T> advance(long targetTick) {
+        List<T> expired = new ArrayList<>();
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+
+            List<Timer<T>> slot = slots.get((int) currentTick & SLOT_MASK);
+            if (slot.isEmpty()) continue;
+            for (Timer<T> timer : slot) expired.add(timer.item());
+            size -= slot.size();
+            slot.clear();
+        }
+        return expired;
+    }
+
+    // guarded by lock; at the start of each turn, the slot of the level above coming up spreads over this level
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) return;
+
+            List<Timer<T>> slot = slots.get(level * SLOTS + ((int) (currentTick >> (SLOT_BITS * level)) & SLOT_MASK));
+            List<Timer<T>> timers = new ArrayList<>(slot);
+            slot.clear();
+            timers.forEach(timer -> place(timer, currentTick));
+        }
+    }
+
+    // guarded by lock; waits until a level 0 slot comes due or a turn ends, or until a timer is added
+    private void awaitNextTick() throws InterruptedException {
+        if (size == 0) {
+            added.await();
+            return;
+        }
+
+        long nextTick = currentTick + 1;
+        while ((nextTick & SLOT_MASK) != 0 && slots.get((int) nextTick & SLOT_MASK).isEmpty()) nextTick++;
+        added.awaitNanos(nextTick * TICK_NANOS - (System.nanoTime() - startNanos));
+    }
+
+    private long elapsedTicks() {
+        return (System.nanoTime() - startNanos) / TICK_NANOS;
+    }
+
+    private record Timer<T>(long expirationTick, T item) {
+    }
+}
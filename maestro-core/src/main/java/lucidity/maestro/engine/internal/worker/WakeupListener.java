@@ -0,0 +1,98 @@
+package lucidity.maestro.engine.internal.worker;
+
+import lucidity.maestro.engine.internal.config.ExecutorConfiguration;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Listens on the maestro_wakeup channel, which the database notifies with the time a deadline or a scheduled task
+ * becomes due, and hands that time to the handler of its topic. Holds one connection of the data source for as
+ * long as it listens.
+ */
+public class WakeupListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(WakeupListener.class);
+
+    public static final String TIMEOUT_TOPIC = "timeout";
+    public static final String SCHEDULER_TOPIC = "scheduler";
+    public static final Duration SAFETY_NET_POLLING_INTERVAL = Duration.ofSeconds(30);
+
+    //language=SQL
+    private static final String LISTEN = "LISTEN maestro_wakeup";
+    private static final int RECEIVE_TIMEOUT_MILLIS = 10_000;
+    private static final long RECONNECT_DELAY_MILLIS = 1_000;
+
+    private final DataSource dataSource;
+    private final Map<String, Consumer<Instant>> handlers = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(ExecutorConfiguration.daemonThreads("maestro-wakeup-listener"));
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    public WakeupListener(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public void register(String topic, Consumer<Instant> handler) {
+        handlers.put(topic, handler);
+    }
+
+    public void start() {
+        if (started.compareAndSet(false, true)) executor.submit(this::listen);
+    }
+
+    private void listen() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+
+                statement.execute(LISTEN);
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+                // whatever was notified while not listening is due now at the latest
+                handlers.values().forEach(handler -> handler.accept(Instant.now()));
+
+                while (!Thread.currentThread().isInterrupted()) {
+                    PGNotification[] notifications = pgConnection.getNotifications(RECEIVE_TIMEOUT_MILLIS);
+                    if (notifications == null) continue;
+                    for (PGNotification notification : notifications) {
+                        dispatch(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                logger.warn("lost the wakeup channel, polling continues until it reconnects", e);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private void dispatch(String payload) {
+        int separator = payload.indexOf(':');
+        Consumer<Instant> handler = separator < 0 ? null : handlers.get(payload.substring(0, separator));
+        if (handler == null) return;
+
+        try {
+            handler.accept(Instant.ofEpochMilli(Long.parseLong(payload.substring(separator + 1))));
+        } catch (RuntimeException e) {
+            logger.warn("could not handle wakeup: {}", payload, e);
+        }
+    }
+}
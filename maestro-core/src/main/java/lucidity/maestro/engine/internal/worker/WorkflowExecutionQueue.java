@@ -0,0 +1,245 @@
+package lucidity.maestro.engine.internal.worker;
+
+import lucidity.maestro.engine.internal.dto.ExecutionQueueMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Runs workflow executions on the executor, one at a time per workflow. Each workflow has a lane holding at most
+ * one pending execution behind the running one; further requests merge into it, since an execution replays
+ * every event stored before it starts.
+ * <p>
+ * Executions are admitted until {@code capacity} of them are waiting for a thread. Beyond that, they are deferred
+ * rather than queued: only the latest deferred execution of each workflow is kept, for the same reason, and one is
+ * submitted again whenever an execution leaves the queue for a thread.
+ * <p>
+ * A workflow's first execution runs on the thread that calls it, once it holds the workflow's lane, so executions
+ * requested meanwhile, e.g. by a signal, wait behind it like they would behind a queued one.
+ */
+public class WorkflowExecutionQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkflowExecutionQueue.class);
+
+    public static final int DEFAULT_CAPACITY = 10_000;
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ExecutorService executor;
+    private final int capacity;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    // the workflow whose lane the current thread holds, if any
+    private final ThreadLocal<String> heldLane = new ThreadLocal<>();
+    // guarded by itself, oldest first
+    private final LinkedHashMap<String, Runnable> deferredExecutions = new LinkedHashMap<>();
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder merged = new LongAdder();
+    private final LongAdder deferred = new LongAdder();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public WorkflowExecutionQueue(ExecutorService executor, int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+        this.executor = executor;
+        this.capacity = capacity;
+    }
+
+    // false if the execution was deferred until there is capacity
+    public boolean submit(String workflowId, Runnable execution) {
+        long enqueuedAt = System.nanoTime();
+        Admission[] admission = new Admission[1];
+
+        lanes.compute(workflowId, (id, lane) -> {
+            if (lane != null && lane.pending != null) {
+                admission[0] = Admission.MERGED;
+                return lane;
+            }
+            if (!reserve()) {
+                admission[0] = Admission.DEFERRED;
+                return lane;
+            }
+            if (lane == null) {
+                admission[0] = Admission.DISPATCHED;
+                return new Lane();
+            }
+            lane.pending = execution;
+            lane.pendingSince = enqueuedAt;
+            admission[0] = Admission.PENDING;
+            return lane;
+        });
+
+        switch (admission[0]) {
+            case MERGED -> merged.increment();
+            case DEFERRED -> {
+                deferred.increment();
+                logger.debug("execution queue full, deferring workflow with id: {}", workflowId);
+                synchronized (deferredExecutions) {
+                    deferredExecutions.remove(workflowId);
+                    deferredExecutions.put(workflowId, execution);
+                }
+                // the queue may have drained before the execution was put aside, with nobody left to submit it
+                if (queueDepth.get() < capacity) submitDeferred();
+                return false;
+            }
+            case PENDING -> accepted.increment();
+            case DISPATCHED -> {
+                accepted.increment();
+                try {
+                    dispatch(workflowId, execution, enqueuedAt);
+                } catch (RejectedExecutionException e) {
+                    lanes.remove(workflowId);
+                    queueDepth.decrementAndGet();
+                    accepted.decrement();
+                    throw e;
+                }
+            }
+        }
+        return true;
+    }
+
+    // lets bulk producers slow down to the rate executions start instead of having them deferred
+    public void awaitCapacity() {
+        while (queueDepth.get() >= capacity) {
+            LockSupport.parkNanos(POLL_NANOS);
+            if (Thread.currentThread().isInterrupted()) throw new IllegalStateException("Interrupted while waiting for execution queue capacity");
+        }
+    }
+
+    // runs the execution on the calling thread once nothing else runs or waits in the workflow's lane, or right away
+    // if the thread already holds it
+    public <T> T runInLane(String workflowId, Supplier<T> execution) {
+        if (workflowId.equals(heldLane.get())) return execution.get();
+
+        acquireLane(workflowId);
+        String previous = heldLane.get();
+        heldLane.set(workflowId);
+        running.incrementAndGet();
+        try {
+            return execution.get();
+        } finally {
+            heldLane.set(previous);
+            running.decrementAndGet();
+            runNext(workflowId);
+        }
+    }
+
+    public ExecutionQueueMetrics metrics() {
+        long startedCount = started.sum();
+        return new ExecutionQueueMetrics(
+                capacity, queueDepth.get(), running.get(),
+                accepted.sum(), merged.sum(), deferred.sum(),
+                Duration.ofNanos(startedCount > 0 ? totalWaitNanos.sum() / startedCount : 0),
+                Duration.ofNanos(maxWaitNanos.get())
+        );
+    }
+
+    private void acquireLane(String workflowId) {
+        boolean[] acquired = new boolean[1];
+        while (true) {
+            lanes.computeIfAbsent(workflowId, id -> {
+                acquired[0] = true;
+                return new Lane();
+            });
+            if (acquired[0]) return;
+            LockSupport.parkNanos(POLL_NANOS);
+            if (Thread.currentThread().isInterrupted()) throw new IllegalStateException("Interrupted while waiting for the lane of workflow with id: " + workflowId);
+        }
+    }
+
+    private boolean reserve() {
+        if (queueDepth.incrementAndGet() <= capacity) return true;
+        queueDepth.decrementAndGet();
+        return false;
+    }
+
+    private void dispatch(String workflowId, Runnable execution, long enqueuedAt) {
+        executor.execute(() -> run(workflowId, execution, enqueuedAt));
+    }
+
+    private void run(String workflowId, Runnable execution, long enqueuedAt) {
+        queueDepth.decrementAndGet();
+        submitDeferred();
+        started.increment();
+        long waitNanos = System.nanoTime() - enqueuedAt;
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+
+        running.incrementAndGet();
+        heldLane.set(workflowId);
+        try {
+            execution.run();
+        } catch (RuntimeException e) {
+            logger.error("execution failed for workflow with id: {}", workflowId, e);
+        } finally {
+            heldLane.remove();
+            running.decrementAndGet();
+            runNext(workflowId);
+        }
+    }
+
+    // takes the place this execution left in the queue, or is deferred again if another submit took it first
+    private void submitDeferred() {
+        String workflowId;
+        Runnable execution;
+        synchronized (deferredExecutions) {
+            Iterator<Map.Entry<String, Runnable>> eldest = deferredExecutions.entrySet().iterator();
+            if (!eldest.hasNext()) return;
+            Map.Entry<String, Runnable> entry = eldest.next();
+            eldest.remove();
+            workflowId = entry.getKey();
+            execution = entry.getValue();
+        }
+        try {
+            submit(workflowId, execution);
+        } catch (RejectedExecutionException e) {
+            logger.warn("executor rejected deferred execution of workflow with id: {}", workflowId, e);
+        }
+    }
+
+    // hands the lane to its pending execution, or closes it
+    private void runNext(String workflowId) {
+        Lane next = new Lane();
+        lanes.compute(workflowId, (id, lane) -> {
+            if (lane == null || lane.pending == null) return null;
+            next.pending = lane.pending;
+            next.pendingSince = lane.pendingSince;
+            lane.pending = null;
+            return lane;
+        });
+        if (next.pending == null) return;
+
+        try {
+            dispatch(workflowId, next.pending, next.pendingSince);
+        } catch (RejectedExecutionException e) {
+            lanes.remove(workflowId);
+            queueDepth.decrementAndGet();
+            logger.warn("executor rejected pending execution of workflow with id: {}", workflowId, e);
+        }
+    }
+
+    private enum Admission {
+        DISPATCHED, PENDING, MERGED, DEFERRED
+    }
+
+    // guarded by the lanes map: only read or written inside compute
+    private static class Lane {
+        private Runnable pending;
+        private long pendingSince;
+    }
+}
@@ -0,0 +1,12 @@
+-- per-workflow sequence counter, so sequence numbers are allocated with a single upsert
+-- instead of reading max(sequence_number) from the event table before every insert
+CREATE TABLE workflow_sequence
+(
+    workflow_id     VARCHAR PRIMARY KEY,
+    sequence_number BIGINT NOT NULL
+);
+
+INSERT INTO workflow_sequence (workflow_id, sequence_number)
+SELECT workflow_id, max(sequence_number)
+FROM event
+GROUP BY workflow_id;
@@ -0,0 +1,9 @@
+-- latest field snapshot of workflows annotated with @Snapshot
+CREATE TABLE workflow_snapshot
+(
+    workflow_id        VARCHAR PRIMARY KEY,
+    correlation_number BIGINT                   NOT NULL,
+    sequence_number    BIGINT                   NOT NULL,
+    state              JSON                     NOT NULL,
+    timestamp          TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,53 @@
+-- deadline of every STARTED workflow and activity event that has a startedToCompletedTimeout and no COMPLETED
+-- event yet, so the timeout poller reads the due rows from an index instead of scanning all STARTED events
+CREATE TABLE event_deadline
+(
+    workflow_id        VARCHAR                  NOT NULL,
+    correlation_number BIGINT                   NOT NULL,
+    event_id           VARCHAR                  NOT NULL,
+    deadline           TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (workflow_id, correlation_number)
+);
+
+CREATE INDEX idx_event_deadline_deadline ON event_deadline (deadline);
+
+INSERT INTO event_deadline (workflow_id, correlation_number, event_id, deadline)
+SELECT started.workflow_id,
+       started.correlation_number,
+       started.id,
+       started.timestamp + (started.metadata ->> 'startedToCompletedTimeout')::interval
+FROM event started
+WHERE started.status = 'STARTED'
+  AND started.category IN ('WORKFLOW', 'ACTIVITY')
+  AND started.metadata ->> 'startedToCompletedTimeout' IS NOT NULL
+  AND NOT EXISTS (SELECT 1
+                  FROM event completed
+                  WHERE completed.workflow_id = started.workflow_id
+                    AND completed.correlation_number = started.correlation_number
+                    AND completed.status = 'COMPLETED')
+ON CONFLICT DO NOTHING;
+
+-- maintained in the same transaction as the event insert, whichever path writes the event
+CREATE FUNCTION track_event_deadline() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF NEW.status = 'STARTED' AND NEW.category IN ('WORKFLOW', 'ACTIVITY')
+        AND NEW.metadata ->> 'startedToCompletedTimeout' IS NOT NULL THEN
+        INSERT INTO event_deadline (workflow_id, correlation_number, event_id, deadline)
+        VALUES (NEW.workflow_id, NEW.correlation_number, NEW.id,
+                NEW.timestamp + (NEW.metadata ->> 'startedToCompletedTimeout')::interval)
+        ON CONFLICT DO NOTHING;
+    ELSIF NEW.status = 'COMPLETED' THEN
+        DELETE FROM event_deadline
+        WHERE workflow_id = NEW.workflow_id
+          AND correlation_number = NEW.correlation_number;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER event_deadline_trigger
+    AFTER INSERT
+    ON event
+    FOR EACH ROW
+EXECUTE PROCEDURE track_event_deadline();
@@ -0,0 +1,3 @@
+-- timeout recovery attempts made so far; once a deadline is claimed it holds the time of the next attempt
+ALTER TABLE event_deadline
+    ADD COLUMN attempts INT NOT NULL DEFAULT 0;
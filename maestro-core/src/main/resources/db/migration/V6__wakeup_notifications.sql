@@ -0,0 +1,32 @@
+-- notify the maestro_wakeup channel with '<topic>:<epoch millis>' whenever a row becomes due at a known time,
+-- so nodes listening for wakeups poll right then instead of on their next interval.
+-- Notifications are delivered on commit, after the row is visible to the poller
+CREATE FUNCTION notify_deadline_wakeup() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF NEW.deadline <> 'infinity' THEN
+        PERFORM pg_notify('maestro_wakeup', 'timeout:' || floor(extract(EPOCH FROM NEW.deadline) * 1000)::bigint);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER event_deadline_wakeup_trigger
+    AFTER INSERT OR UPDATE OF deadline
+    ON event_deadline
+    FOR EACH ROW
+EXECUTE PROCEDURE notify_deadline_wakeup();
+
+CREATE FUNCTION notify_scheduled_task_wakeup() RETURNS TRIGGER AS
+$$
+BEGIN
+    PERFORM pg_notify('maestro_wakeup', 'scheduler:' || floor(extract(EPOCH FROM NEW.execution_time) * 1000)::bigint);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER scheduled_tasks_wakeup_trigger
+    AFTER INSERT OR UPDATE OF execution_time
+    ON scheduled_tasks
+    FOR EACH ROW
+EXECUTE PROCEDURE notify_scheduled_task_wakeup();
@@ -0,0 +1,82 @@
+-- one row per workflow, so listing workflows reads a page of an index instead of joining the whole event table.
+-- Input and output stay in the event table and are referenced by event id
+CREATE TABLE workflow_summary
+(
+    workflow_id        VARCHAR PRIMARY KEY,
+    class_name         VARCHAR,
+    function_name      VARCHAR,
+    status             status,
+    start_timestamp    TIMESTAMP WITH TIME ZONE,
+    end_timestamp      TIMESTAMP WITH TIME ZONE,
+    started_event_id   VARCHAR,
+    completed_event_id VARCHAR,
+    event_count        BIGINT NOT NULL DEFAULT 0
+);
+
+-- keyset pages run newest first, optionally narrowed to a status or class
+CREATE INDEX idx_workflow_summary_start ON workflow_summary (start_timestamp, workflow_id);
+CREATE INDEX idx_workflow_summary_status_start ON workflow_summary (status, start_timestamp, workflow_id);
+CREATE INDEX idx_workflow_summary_class_start ON workflow_summary (class_name, start_timestamp, workflow_id);
+
+INSERT INTO workflow_summary (workflow_id, event_count)
+SELECT workflow_id, count(*)
+FROM event
+GROUP BY workflow_id;
+
+UPDATE workflow_summary summary
+SET class_name       = started.class_name,
+    function_name    = started.function_name,
+    status           = started.status,
+    start_timestamp  = started.timestamp,
+    started_event_id = started.id
+FROM event started
+WHERE started.workflow_id = summary.workflow_id
+  AND started.category = 'WORKFLOW'
+  AND started.status = 'STARTED';
+
+UPDATE workflow_summary summary
+SET status             = ended.status,
+    end_timestamp      = ended.timestamp,
+    completed_event_id = ended.id
+FROM event ended
+WHERE ended.workflow_id = summary.workflow_id
+  AND ended.category = 'WORKFLOW'
+  AND ended.status IN ('COMPLETED', 'FAILED');
+
+-- maintained in the same transaction as the event insert, whichever path writes the event
+CREATE FUNCTION track_workflow_summary() RETURNS TRIGGER AS
+$$
+DECLARE
+    is_start BOOLEAN := NEW.category = 'WORKFLOW' AND NEW.status = 'STARTED';
+    is_end   BOOLEAN := NEW.category = 'WORKFLOW' AND NEW.status IN ('COMPLETED', 'FAILED');
+BEGIN
+    INSERT INTO workflow_summary AS summary (workflow_id, class_name, function_name, status, start_timestamp,
+                                             end_timestamp, started_event_id, completed_event_id, event_count)
+    VALUES (NEW.workflow_id,
+            CASE WHEN is_start THEN NEW.class_name END,
+            CASE WHEN is_start THEN NEW.function_name END,
+            CASE WHEN is_start OR is_end THEN NEW.status END,
+            CASE WHEN is_start THEN NEW.timestamp END,
+            CASE WHEN is_end THEN NEW.timestamp END,
+            CASE WHEN is_start THEN NEW.id END,
+            CASE WHEN is_end THEN NEW.id END,
+            1)
+    ON CONFLICT (workflow_id) DO UPDATE
+        SET class_name         = COALESCE(EXCLUDED.class_name, summary.class_name),
+            function_name      = COALESCE(EXCLUDED.function_name, summary.function_name),
+            -- an ended workflow keeps its final status
+            status             = COALESCE(CASE WHEN is_end THEN EXCLUDED.status END, summary.status, EXCLUDED.status),
+            start_timestamp    = COALESCE(EXCLUDED.start_timestamp, summary.start_timestamp),
+            end_timestamp      = COALESCE(EXCLUDED.end_timestamp, summary.end_timestamp),
+            started_event_id   = COALESCE(EXCLUDED.started_event_id, summary.started_event_id),
+            completed_event_id = COALESCE(EXCLUDED.completed_event_id, summary.completed_event_id),
+            event_count        = summary.event_count + 1;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER workflow_summary_trigger
+    AFTER INSERT
+    ON event
+    FOR EACH ROW
+EXECUTE PROCEDURE track_workflow_summary();
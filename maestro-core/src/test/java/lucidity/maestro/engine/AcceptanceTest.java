@@ -157,6 +157,37 @@ public class AcceptanceTest {
 
     }
 
+    @Test
+    void testWorkflowWithActivityAndGroupCommit() throws Exception {
+
+        // given a maestro that batches event inserts
+        Maestro maestro = MaestroService.builder()
+                .configureDataSource(postgresqlContainer.getUsername(), postgresqlContainer.getPassword(), postgresqlContainer.getJdbcUrl())
+                .configureGroupCommit(50, 2)
+                .build();
+        maestro.registerWorkflowImplementationTypes(ExampleWorkflowWithActivity.class);
+        maestro.registerActivity(new ExampleMathActivityImpl());
+
+        // when we execute a workflow
+        String workflowId = "example-workflow-with-group-commit-id";
+        ExampleWorkflowWithActivity workflow = MaestroService.newWorkflow(ExampleWorkflowWithActivity.class, new WorkflowOptions(workflowId));
+        String output = workflow.execute(new ExampleWorkflowWithActivity.ExampleWorkflowWithActivityParam(10, 3L, 5L));
+
+        // then the workflow executes as expected
+        assertEquals("25", output);
+
+        // and all events are persisted
+        List<EventModel> events = MaestroService.getWorkflowEvents(workflowId);
+        assertEquals(3, events.size());
+        assertNotNull(events.get(0).endTimestamp());
+        assertEquals("multiply", events.get(1).functionName());
+        assertEquals("subtract", events.get(2).functionName());
+
+        // and re-executing the completed workflow doesn't duplicate any events
+        assertEquals("25", workflow.execute(new ExampleWorkflowWithActivity.ExampleWorkflowWithActivityParam(10, 3L, 5L)));
+        assertEquals(3, MaestroService.getWorkflowEvents(workflowId).size());
+    }
+
     @Test
     public void testWorkflowWithSleep() {
 
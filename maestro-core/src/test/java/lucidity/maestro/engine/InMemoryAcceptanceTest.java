@@ -0,0 +1,847 @@
+package lucidity.maestro.engine;
+
+import lucidity.maestro.engine.api.Maestro;
+import lucidity.maestro.engine.api.metrics.PrometheusMetrics;
+import lucidity.maestro.engine.api.signal.Signal;
+import lucidity.maestro.engine.api.workflow.RunnableWorkflow;
+import lucidity.maestro.engine.api.workflow.Snapshot;
+import lucidity.maestro.engine.api.workflow.WorkflowOptions;
+import lucidity.maestro.engine.api.workflow.WorkflowStart;
+import lucidity.maestro.engine.internal.config.TimeoutRecoveryPolicy;
+import lucidity.maestro.engine.internal.dto.ExecutionQueueMetrics;
+import lucidity.maestro.engine.internal.dto.TimeoutClaim;
+import lucidity.maestro.engine.internal.dto.WorkflowCursor;
+import lucidity.maestro.engine.internal.dto.WorkflowPage;
+import lucidity.maestro.engine.internal.dto.WorkflowQuery;
+import lucidity.maestro.engine.internal.entity.Category;
+import lucidity.maestro.engine.internal.entity.EventEntity;
+import lucidity.maestro.engine.internal.entity.EventModel;
+import lucidity.maestro.engine.internal.entity.Status;
+import lucidity.maestro.engine.internal.entity.WorkflowModel;
+import lucidity.maestro.engine.internal.entity.WorkflowSnapshot;
+import lucidity.maestro.engine.internal.exception.WorkflowSequenceConflict;
+import lucidity.maestro.engine.internal.repo.InMemoryEventStore;
+import lucidity.maestro.engine.internal.util.Json;
+import lucidity.maestro.engine.util.*;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryAcceptanceTest {
+
+    @Test
+    void testSimpleWorkflowWithNoSignals() throws Exception {
+
+        // given a configured maestro
+        Maestro maestro = MaestroService.builder()
+                .configureInMemoryEventStore()
+                .build();
+        maestro.registerWorkflowImplementationTypes(ExampleSimpleWorkflow.class);
+
+        // when we create a workflow
+        ExampleSimpleWorkflow exampleSimpleWorkflow = MaestroService.newWorkflow(ExampleSimpleWorkflow.class, new WorkflowOptions("example-simple-workflow-id"));
+        // and execute the workflow
+        String output = exampleSimpleWorkflow.execute(666);
+
+        // then the workflow executes as expected
+        assertEquals("666", output);
+
+        // and an event is created in the database
+        List<EventModel> events = MaestroService.getWorkflowEvents("example-simple-workflow-id");
+        assertEquals(1, events.size());
+        assertEquals("example-simple-workflow-id", events.get(0).workflowId());
+        assertEquals("666", events.get(0).input());
+        assertEquals("\"666\"", events.get(0).output());
+        assertEquals("execute", events.get(0).functionName());
+        assertEquals(ExampleSimpleWorkflow.class.getSimpleName(), events.get(0).className());
+        assertEquals(Category.WORKFLOW, events.get(0).category());
+
+    }
+
+    @Test
+    void testSimpleWorkflowWithSignal() throws Exception {
+
+        // given a configured maestro
+        Maestro maestro = MaestroService.builder()
+                .configureInMemoryEventStore()
+                .build();
+        maestro.registerWorkflowImplementationTypes(ExampleWorkflowWithSignal.class);
+
+        // when we create a workflow
+        String workflowId = "example-with-signal-id";
+        ExampleWorkflowWithSignal exampleSimpleWorkflow = MaestroService.newWorkflow(ExampleWorkflowWithSignal.class, new WorkflowOptions(workflowId));
+        // and execute the workflow
+        String output = exampleSimpleWorkflow.execute(777);
+
+        // then the workflow returns null because it's waiting on a signal
+        assertNull(output);
+
+        // and 2 events are created in the database
+        List<EventModel> events = MaestroService.getWorkflowEvents(workflowId);
+        assertEquals(2, events.size());
+
+        // and one of the events is a WORKFLOW event with no end time and a null output
+        assertEquals(workflowId, events.get(0).workflowId());
+        assertEquals("777", events.get(0).input());
+        assertNull(events.get(0).output());
+        assertEquals("execute", events.get(0).functionName());
+        assertEquals(ExampleWorkflowWithSignal.class.getSimpleName(), events.get(0).className());
+        assertNull(events.get(0).endTimestamp());
+        assertEquals(Category.WORKFLOW, events.get(0).category());
+
+        // and one is an AWAIT event with no end time
+        assertEquals(workflowId, events.get(1).workflowId());
+        assertEquals(Category.AWAIT, events.get(1).category());
+        assertNull(events.get(1).endTimestamp());
+
+        // and when we send the signal
+        exampleSimpleWorkflow.doContinue(true);
+
+        // then there will eventually be 3 events
+        Awaitility.await().atMost(5, TimeUnit.SECONDS)
+                .until(() -> MaestroService.getWorkflowEvents(workflowId).size() == 3);
+        events = MaestroService.getWorkflowEvents(workflowId);
+
+        // and WORKFLOW will be complete with the correct output
+        assertNotNull(events.get(0).endTimestamp());
+        assertEquals("\"777\"", events.get(0).output());
+
+        // and AWAIT is complete
+        assertNotNull(events.get(1).endTimestamp());
+
+        // and SIGNAL is correct
+        assertEquals(workflowId, events.get(2).workflowId());
+        assertEquals(Category.SIGNAL, events.get(2).category());
+        assertEquals("true", events.get(2).input());
+
+
+    }
+
+
+    @Test
+    void testWorkflowWithActivity() throws Exception {
+
+        // given a configured maestro
+        Maestro maestro = MaestroService.builder()
+                .configureInMemoryEventStore()
+                .build();
+        maestro.registerWorkflowImplementationTypes(ExampleWorkflowWithActivity.class);
+        maestro.registerActivity(new ExampleMathActivityImpl());
+
+        // when we create a workflow
+        String workflowId = "example-workflow-with-activity-id";
+        ExampleWorkflowWithActivity exampleWorkflowWithActivity = MaestroService.newWorkflow(ExampleWorkflowWithActivity.class, new WorkflowOptions(workflowId));
+        // and execute the workflow
+        ExampleWorkflowWithActivity.ExampleWorkflowWithActivityParam param = new ExampleWorkflowWithActivity.ExampleWorkflowWithActivityParam(100, 2L, 20L);
+        String output = exampleWorkflowWithActivity.execute(param);
+
+        // then the workflow executes as expected
+        // 100 x 2 - 20 = 180
+        assertEquals("180", output);
+
+        // and an event is created in the database
+        List<EventModel> events = MaestroService.getWorkflowEvents(workflowId);
+        assertEquals(3, events.size()); // 1 workflow and 2 activity is 3 total
+        assertEquals(workflowId, events.get(0).workflowId());
+        assertEquals("""
+                {"startWith":100,"multiplyBy":2,"subtract":20}""", events.get(0).input());
+        assertEquals("\"180\"", events.get(0).output());
+        assertEquals("execute", events.get(0).functionName());
+        assertEquals(ExampleWorkflowWithActivity.class.getSimpleName(), events.get(0).className());
+        assertNotNull(events.get(0).startTimestamp());
+        assertNotNull(events.get(0).endTimestamp());
+        assertEquals(Category.WORKFLOW, events.get(0).category());
+
+        // and there are 2 activity events
+        assertEquals(Category.ACTIVITY, events.get(1).category());
+        assertEquals("multiply", events.get(1).functionName());
+
+        assertEquals(Category.ACTIVITY, events.get(2).category());
+        assertEquals("subtract", events.get(2).functionName());
+
+    }
+
+    @Test
+    void testWorkflowWithSnapshot() {
+
+        // given a maestro with an event store we can inspect
+        InMemoryEventStore eventStore = new InMemoryEventStore();
+        Maestro maestro = MaestroService.builder()
+                .configureEventStore(eventStore)
+                .build();
+        maestro.registerWorkflowImplementationTypes(ExampleWorkflowWithSnapshot.class);
+        maestro.registerActivity(new ExampleMathActivityImpl());
+
+        // when we execute a workflow that snapshots every 2 steps
+        String workflowId = "example-with-snapshot-id";
+        ExampleWorkflowWithSnapshot workflow = MaestroService.newWorkflow(ExampleWorkflowWithSnapshot.class, new WorkflowOptions(workflowId));
+        Long output = workflow.execute(5L);
+
+        // then the workflow returns null because it's waiting on a signal
+        assertNull(output);
+
+        // and a snapshot was taken after the 2 activities
+        WorkflowSnapshot snapshot = eventStore.getSnapshot(workflowId);
+        assertNotNull(snapshot);
+        assertEquals(3L, snapshot.correlationNumber());
+
+        // and when we send the signal
+        workflow.doContinue(true);
+
+        // then the workflow resumes from the snapshot and completes with the correct output
+        // (5 x 2 - 1) x 10 = 90
+        Awaitility.await().atMost(5, TimeUnit.SECONDS)
+                .until(() -> MaestroService.getWorkflowEvents(workflowId).get(0).endTimestamp() != null);
+        List<EventModel> events = MaestroService.getWorkflowEvents(workflowId);
+        assertEquals("90", events.get(0).output());
+
+        // and every step was recorded exactly once: workflow, 3 activities, await and signal
+        assertEquals(6, events.size());
+    }
+
+    @Test
+    void testSnapshotWithoutProgressIsIgnored() {
+
+        // given a maestro with an event store we can inspect
+        InMemoryEventStore eventStore = new InMemoryEventStore();
+        Maestro maestro = MaestroService.builder()
+                .configureEventStore(eventStore)
+                .build();
+        maestro.registerWorkflowImplementationTypes(ExampleWorkflowWithUnguardedSnapshot.class);
+        maestro.registerActivity(new ExampleMathActivityImpl());
+
+        // when a workflow that never advances its progress field is snapshotted while it waits on a signal
+        String workflowId = "example-with-unguarded-snapshot-id";
+        ExampleWorkflowWithUnguardedSnapshot workflow = MaestroService.newWorkflow(ExampleWorkflowWithUnguardedSnapshot.class, new WorkflowOptions(workflowId));
+        assertNull(workflow.execute(5L));
+        assertNotNull(eventStore.getSnapshot(workflowId));
+
+        // and resumed by the signal
+        workflow.doContinue(true);
+
+        // then it replays its whole history instead of running its first steps again on the restored fields
+        Awaitility.await().atMost(5, TimeUnit.SECONDS)
+                .until(() -> MaestroService.getWorkflowEvents(workflowId).get(0).endTimestamp() != null);
+        List<EventModel> events = MaestroService.getWorkflowEvents(workflowId);
+        assertEquals("90", events.get(0).output());
+        assertEquals(6, events.size());
+    }
+
+    @Test
+    void testSnapshotRequiresProgressField() {
+
+        // given a maestro
+        Maestro maestro = MaestroService.builder()
+                .configureInMemoryEventStore()
+                .build();
+
+        // then a snapshotted workflow naming a progress field it doesn't have is rejected
+        assertThrows(IllegalArgumentException.class,
+                () -> maestro.registerWorkflowImplementationTypes(WorkflowWithMissingProgress.class));
+    }
+
+    @Snapshot(progress = "stage")
+    public static class WorkflowWithMissingProgress implements RunnableWorkflow<Long, Long> {
+
+        @Override
+        public Long execute(Long input) {
+            return input;
+        }
+    }
+
+    @Test
+    public void testWorkflowWithSleep() {
+
+        // given a configured maestro
+        Maestro maestro = MaestroService.builder()
+                .configureInMemoryEventStore()
+                .build();
+        maestro.registerWorkflowImplementationTypes(ExampleWorkflowWithSleep.class);
+
+        // when we create a workflow
+        String workflowId = "example-with-sleep";
+        ExampleWorkflowWithSleep exampleSimpleWorkflow = MaestroService.newWorkflow(ExampleWorkflowWithSleep.class, new WorkflowOptions(workflowId));
+        // and execute the workflow
+        String output = exampleSimpleWorkflow.execute(123);
+
+        // then the workflow returns null because it's waiting on a sleep
+        assertNull(output);
+
+        // and 2 events are created in the database
+        List<EventModel> events = MaestroService.getWorkflowEvents(workflowId);
+        assertEquals(2, events.size());
+
+        // and one of the events is a WORKFLOW event with no end time and a null output
+        assertEquals(workflowId, events.get(0).workflowId());
+        assertEquals("123", events.get(0).input());
+        assertNull(events.get(0).output());
+        assertEquals("execute", events.get(0).functionName());
+        assertEquals(ExampleWorkflowWithSleep.class.getSimpleName(), events.get(0).className());
+        assertNull(events.get(0).endTimestamp());
+        assertEquals(Category.WORKFLOW, events.get(0).category());
+
+        // and one is an AWAIT event with no end time
+        assertEquals(workflowId, events.get(1).workflowId());
+        assertEquals(Category.SLEEP, events.get(1).category());
+        assertNull(events.get(1).endTimestamp());
+
+        // then the workflow will eventually complete
+        Awaitility.await().atMost(30, TimeUnit.SECONDS)
+                .until(() -> MaestroService.getWorkflowEvents(workflowId).get(0).endTimestamp() != null);
+        events = MaestroService.getWorkflowEvents(workflowId);
+
+        // and WORKFLOW will be complete with the correct output
+        assertEquals("\"123\"", events.get(0).output());
+
+    }
+
+    @Test
+    void testWorkflowWithAsync() throws Exception {
+        // given a configured maestro
+        Maestro maestro = MaestroService.builder()
+                .configureInMemoryEventStore()
+                .build();
+        maestro.registerWorkflowImplementationTypes(ExampleWorkflowWithAsync.class);
+        maestro.registerActivity(new ExampleAsyncActivityImpl());
+
+        // when we create a workflow
+        String workflowId = "example-workflow-with-async";
+        ExampleWorkflowWithAsync exampleWorkflowWithActivity = MaestroService.newWorkflow(ExampleWorkflowWithAsync.class, new WorkflowOptions(workflowId));
+        // and execute the workflow
+        String output = exampleWorkflowWithActivity.execute(55);
+
+        // then we get the expected output
+        assertEquals("param: [55] oneSecondEcho: [1-second-echo] twoSecondEcho: [2-second-echo]", output);
+
+        // and the expected number of events
+        List<EventModel> events = MaestroService.getWorkflowEvents(workflowId);
+        assertEquals(3, events.size());
+
+        // and the activities ran concurrently, so the shorter one finished first
+        EventModel twoSecondActivity = events.stream().filter(e -> "workFor2SecondsAndEcho".equals(e.functionName())).findFirst().orElseThrow();
+        EventModel oneSecondActivity = events.stream().filter(e -> "workFor1SecondAndEcho".equals(e.functionName())).findFirst().orElseThrow();
+        assertTrue(oneSecondActivity.endTimestamp().isBefore(twoSecondActivity.endTimestamp()));
+        assertTrue(oneSecondActivity.startTimestamp().isBefore(twoSecondActivity.endTimestamp()));
+    }
+
+
+
+    @Test
+    void testNewWorkflowReusesGeneratedClass() {
+
+        // given a configured maestro
+        Maestro maestro = MaestroService.builder()
+                .configureInMemoryEventStore()
+                .build();
+        maestro.registerWorkflowImplementationTypes(ExampleSimpleWorkflow.class);
+        ExampleSimpleWorkflow first = MaestroService.newWorkflow(ExampleSimpleWorkflow.class, new WorkflowOptions("reused-class-0"));
+        long loadedClasses = ManagementFactory.getClassLoadingMXBean().getTotalLoadedClassCount();
+
+        // when we create many more workflows
+        for (int i = 1; i <= 2_000; i++) {
+            ExampleSimpleWorkflow workflow = MaestroService.newWorkflow(ExampleSimpleWorkflow.class, new WorkflowOptions("reused-class-" + i));
+            assertSame(first.getClass(), workflow.getClass());
+        }
+
+        // then no class is generated per instance
+        assertTrue(ManagementFactory.getClassLoadingMXBean().getTotalLoadedClassCount() - loadedClasses < 100);
+
+        // and each instance still runs with its own options
+        assertEquals("7", MaestroService.newWorkflow(ExampleSimpleWorkflow.class, new WorkflowOptions("reused-class-a")).execute(7));
+        assertEquals("8", MaestroService.newWorkflow(ExampleSimpleWorkflow.class, new WorkflowOptions("reused-class-b")).execute(8));
+        assertEquals("\"7\"", MaestroService.getWorkflowEvents("reused-class-a").get(0).output());
+        assertEquals("\"8\"", MaestroService.getWorkflowEvents("reused-class-b").get(0).output());
+    }
+
+    @Test
+    void testNewWorkflowUsesCompileTimeWovenClass() {
+
+        // given a maestro and a workflow compiled with maestro-processor
+        Maestro maestro = MaestroService.builder()
+                .configureInMemoryEventStore()
+                .build();
+        maestro.registerWorkflowImplementationTypes(ExampleSimpleWorkflow.class);
+
+        // when we create a workflow
+        ExampleSimpleWorkflow workflow = MaestroService.newWorkflow(ExampleSimpleWorkflow.class, new WorkflowOptions("woven-class-id"));
+
+        // then the generated subclass is used instead of a runtime one
+        assertEquals(ExampleSimpleWorkflow.class.getName() + "$MaestroWorkflow", workflow.getClass().getName());
+        assertEquals("3", workflow.execute(3));
+        assertEquals(ExampleSimpleWorkflow.class.getSimpleName(), MaestroService.getWorkflowEvents("woven-class-id").get(0).className());
+    }
+
+    @Test
+    void testExecutionQueueCapacityMustBePositive() {
+
+        // then a queue that could never admit an execution is rejected
+        assertThrows(IllegalArgumentException.class, () -> MaestroService.builder().configureExecutionQueueCapacity(0));
+    }
+
+    @Test
+    void testSignalsWithinWindowResumeWorkflowOnce() {
+
+        // given a maestro that coalesces signals
+        Maestro maestro = MaestroService.builder()
+                .configureInMemoryEventStore()
+                .configureSignalCoalescingWindow(Duration.ofMillis(300))
+                .build();
+        maestro.registerWorkflowImplementationTypes(ExampleWorkflowWithSignal.class);
+
+        String workflowId = "coalesced-signals-id";
+        ExampleWorkflowWithSignal workflow = MaestroService.newWorkflow(ExampleWorkflowWithSignal.class, new WorkflowOptions(workflowId));
+        assertNull(workflow.execute(5));
+
+        // when several signals arrive within the window
+        workflow.doContinue(false);
+        workflow.doContinue(false);
+        workflow.doContinue(true);
+
+        // then every signal is stored right away
+        assertEquals(3, MaestroService.getWorkflowEvents(workflowId).stream()
+                .filter(event -> event.category() == Category.SIGNAL).count());
+
+        // and the workflow completes after a single execution that applied all of them
+        Awaitility.await().atMost(5, TimeUnit.SECONDS)
+                .until(() -> MaestroService.getWorkflowEvents(workflowId).get(0).endTimestamp() != null);
+        assertEquals("\"5\"", MaestroService.getWorkflowEvents(workflowId).get(0).output());
+        assertEquals(1, MaestroService.getExecutionQueueMetrics().accepted());
+    }
+
+    @Test
+    void testSignalBatchResumesStartedWorkflows() {
+
+        // given two waiting workflows
+        Maestro maestro = MaestroService.builder()
+                .configureInMemoryEventStore()
+                .build();
+        maestro.registerWorkflowImplementationTypes(ExampleWorkflowWithSignal.class);
+
+        List<String> startedIds = List.of("batch-signal-id-1", "batch-signal-id-2");
+        startedIds.forEach(workflowId -> assertNull(MaestroService.newWorkflow(ExampleWorkflowWithSignal.class, new WorkflowOptions(workflowId)).execute(9)));
+
+        // when a batch signals them and a workflow that hasn't started yet
+        String pendingId = "batch-signal-not-started-id";
+        maestro.signal(ExampleWorkflowWithSignal.class, List.of(
+                new Signal(startedIds.get(0), "doContinue", false),
+                new Signal(startedIds.get(0), "doContinue", true),
+                new Signal(startedIds.get(1), "doContinue", true),
+                new Signal(pendingId, "doContinue", true)
+        ));
+
+        // then the started workflows complete after one execution each
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> startedIds.stream()
+                .allMatch(workflowId -> MaestroService.getWorkflowEvents(workflowId).get(0).endTimestamp() != null));
+        assertEquals(2, MaestroService.getExecutionQueueMetrics().accepted());
+        assertEquals(2, MaestroService.getWorkflowEvents(startedIds.get(0)).stream()
+                .filter(event -> event.category() == Category.SIGNAL).count());
+
+        // and the signal of the other workflow is stored for when it starts
+        List<EventModel> pendingEvents = MaestroService.getWorkflowEvents(pendingId);
+        assertEquals(1, pendingEvents.size());
+        assertEquals(Category.SIGNAL, pendingEvents.get(0).category());
+
+        // and it returns right away once started
+        assertEquals("9", MaestroService.newWorkflow(ExampleWorkflowWithSignal.class, new WorkflowOptions(pendingId)).execute(9));
+    }
+
+    @Test
+    void testSignalBatchRejectsUnknownSignalFunction() {
+        Maestro maestro = MaestroService.builder()
+                .configureInMemoryEventStore()
+                .build();
+        maestro.registerWorkflowImplementationTypes(ExampleWorkflowWithSignal.class);
+
+        assertThrows(IllegalArgumentException.class, () -> maestro.signal(ExampleWorkflowWithSignal.class,
+                List.of(new Signal("batch-signal-unknown-id", "execute", 1))));
+        assertTrue(MaestroService.getWorkflowEvents("batch-signal-unknown-id").isEmpty());
+    }
+
+    @Test
+    void testStartWorkflowsSkipsStartedWorkflows() {
+
+        // given a workflow that already ran
+        Maestro maestro = MaestroService.builder()
+                .configureInMemoryEventStore()
+                .build();
+        maestro.registerWorkflowImplementationTypes(ExampleSimpleWorkflow.class);
+        assertEquals("1", MaestroService.newWorkflow(ExampleSimpleWorkflow.class, new WorkflowOptions("bulk-start-id-1")).execute(1));
+
+        // when it is started in bulk together with new ones, one of them listed twice
+        maestro.startWorkflows(ExampleSimpleWorkflow.class, List.of(
+                new WorkflowStart(new WorkflowOptions("bulk-start-id-1"), 100),
+                new WorkflowStart(new WorkflowOptions("bulk-start-id-2"), 2),
+                new WorkflowStart(new WorkflowOptions("bulk-start-id-3"), 3),
+                new WorkflowStart(new WorkflowOptions("bulk-start-id-3"), 300)
+        ));
+
+        // then only the new workflows execute, each with its first input
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> List.of("bulk-start-id-2", "bulk-start-id-3").stream()
+                .allMatch(workflowId -> MaestroService.getWorkflowEvents(workflowId).get(0).endTimestamp() != null));
+        assertEquals(2, MaestroService.getExecutionQueueMetrics().accepted());
+        assertEquals("\"2\"", MaestroService.getWorkflowEvents("bulk-start-id-2").get(0).output());
+        assertEquals("\"3\"", MaestroService.getWorkflowEvents("bulk-start-id-3").get(0).output());
+
+        // and the existing one is left as it was
+        List<EventModel> events = MaestroService.getWorkflowEvents("bulk-start-id-1");
+        assertEquals(1, events.size());
+        assertEquals("1", events.get(0).input());
+    }
+
+    @Test
+    void testResumeAppliesEachSignalOnce() {
+
+        // given a configured maestro
+        Maestro maestro = MaestroService.builder()
+                .configureInMemoryEventStore()
+                .build();
+        maestro.registerWorkflowImplementationTypes(ExampleWorkflowWithCountingSignal.class);
+
+        // and a workflow waiting for three increments
+        String workflowId = "counting-id";
+        ExampleWorkflowWithCountingSignal workflow = MaestroService.newWorkflow(ExampleWorkflowWithCountingSignal.class, new WorkflowOptions(workflowId));
+        assertNull(workflow.execute(3));
+
+        // when it is incremented twice, each time resuming and suspending again
+        for (int signals = 1; signals <= 2; signals++) {
+            workflow.increment(1);
+            Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> MaestroService.getExecutionQueueMetrics().running() == 0
+                    && MaestroService.getExecutionQueueMetrics().queueDepth() == 0);
+        }
+
+        // then it is still waiting, since no increment was counted twice
+        assertNull(MaestroService.getWorkflowEvents(workflowId).get(0).endTimestamp());
+
+        // and the third increment completes it with the count of all three
+        workflow.increment(1);
+        Awaitility.await().atMost(5, TimeUnit.SECONDS)
+                .until(() -> MaestroService.getWorkflowEvents(workflowId).get(0).endTimestamp() != null);
+        assertEquals("3", MaestroService.getWorkflowEvents(workflowId).get(0).output());
+    }
+
+    @Test
+    void testSignalStoredWhileSleepCompletes() throws Exception {
+
+        // given a store that holds up sleep completions once their sequence numbers are reserved
+        CountDownLatch reserved = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InMemoryEventStore eventStore = new InMemoryEventStore() {
+            @Override
+            public List<EventEntity> saveAllIfAbsent(List<EventEntity> events) {
+                if (reserved.getCount() > 0) {
+                    reserved.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.saveAllIfAbsent(events);
+            }
+        };
+        Maestro maestro = MaestroService.builder()
+                .configureEventStore(eventStore)
+                .build();
+        maestro.registerWorkflowImplementationTypes(ExampleWorkflowWithSleepAndSignal.class);
+
+        // and a workflow whose sleep is completing
+        String workflowId = "sleep-and-signal-id";
+        ExampleWorkflowWithSleepAndSignal workflow = MaestroService.newWorkflow(ExampleWorkflowWithSleepAndSignal.class, new WorkflowOptions(workflowId));
+        assertNull(workflow.execute(7));
+        assertTrue(reserved.await(5, TimeUnit.SECONDS));
+
+        // when a signal takes a later sequence number and is stored first
+        workflow.doContinue(true);
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> MaestroService.getExecutionQueueMetrics().running() == 0
+                && MaestroService.getExecutionQueueMetrics().queueDepth() == 0
+                && MaestroService.getWorkflowEvents(workflowId).stream().anyMatch(event -> event.category() == Category.SIGNAL));
+        release.countDown();
+
+        // then the workflow still sees its sleep complete and finishes
+        Awaitility.await().atMost(5, TimeUnit.SECONDS)
+                .until(() -> MaestroService.getWorkflowEvents(workflowId).get(0).endTimestamp() != null);
+        assertEquals("\"7\"", MaestroService.getWorkflowEvents(workflowId).get(0).output());
+    }
+
+    @Test
+    void testSignalDuringFirstExecutionWaitsForIt() throws Exception {
+
+        // given a store that holds up the first execution while it looks for signals
+        CountDownLatch awaiting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger historyLoads = new AtomicInteger();
+        InMemoryEventStore eventStore = new InMemoryEventStore() {
+            @Override
+            public List<EventEntity> getHistory(String workflowId, Long afterSequenceNumber) {
+                historyLoads.incrementAndGet();
+                return super.getHistory(workflowId, afterSequenceNumber);
+            }
+
+            @Override
+            public List<EventEntity> getSignals(String workflowId, Long sequenceNumber) {
+                if (awaiting.getCount() > 0) {
+                    awaiting.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.getSignals(workflowId, sequenceNumber);
+            }
+        };
+        Maestro maestro = MaestroService.builder()
+                .configureEventStore(eventStore)
+                .build();
+        maestro.registerWorkflowImplementationTypes(ExampleWorkflowWithSignal.class);
+
+        // and a workflow in its first execution
+        String workflowId = "signal-during-first-execution-id";
+        ExampleWorkflowWithSignal workflow = MaestroService.newWorkflow(ExampleWorkflowWithSignal.class, new WorkflowOptions(workflowId));
+        CompletableFuture<String> output = CompletableFuture.supplyAsync(() -> workflow.execute(5));
+        assertTrue(awaiting.await(5, TimeUnit.SECONDS));
+
+        // when a signal arrives meanwhile
+        workflow.doContinue(true);
+        Thread.sleep(200);
+
+        // then its replay waits for the first execution instead of running alongside it
+        assertEquals(1, historyLoads.get());
+        release.countDown();
+        assertNull(output.get(5, TimeUnit.SECONDS));
+
+        // and resumes the workflow once it suspended
+        Awaitility.await().atMost(5, TimeUnit.SECONDS)
+                .until(() -> MaestroService.getWorkflowEvents(workflowId).get(0).endTimestamp() != null);
+        assertEquals("\"5\"", MaestroService.getWorkflowEvents(workflowId).get(0).output());
+    }
+
+    @Test
+    void testTimedOutEventsAreClaimedOncePerAttempt() throws Exception {
+
+        // given a store without a timeout worker polling it
+        InMemoryEventStore eventStore = new InMemoryEventStore();
+        String metadata = Json.serialize(new WorkflowOptions("deadline-id", Duration.ofMillis(1)));
+
+        // when one workflow completes and one keeps running past its deadline
+        eventStore.saveWithRetry(() -> new EventEntity("1", "deadline-completed-id", 1L, 1L, Category.WORKFLOW,
+                "ExampleSimpleWorkflow", "execute", "1", Status.STARTED, null, metadata));
+        eventStore.saveWithRetry(() -> new EventEntity("2", "deadline-completed-id", 1L, 2L, Category.WORKFLOW,
+                "ExampleSimpleWorkflow", "execute", "\"1\"", Status.COMPLETED, null, null));
+        eventStore.saveWithRetry(() -> new EventEntity("3", "deadline-waiting-id", 1L, 1L, Category.WORKFLOW,
+                "ExampleWorkflowWithSignal", "execute", "2", Status.STARTED, null, metadata));
+        Thread.sleep(10);
+
+        // then only the waiting workflow is claimed
+        TimeoutRecoveryPolicy policy = new TimeoutRecoveryPolicy(2, Duration.ofMillis(50), Duration.ofSeconds(1));
+        List<TimeoutClaim> claims = eventStore.claimTimedOutEvents(policy);
+        assertEquals(List.of("deadline-waiting-id"), claims.stream().map(claim -> claim.event().workflowId()).toList());
+        assertEquals(1, claims.get(0).attempt());
+
+        // and not again until its backoff passed
+        assertTrue(eventStore.claimTimedOutEvents(policy).isEmpty());
+        Thread.sleep(60);
+        assertEquals(2, eventStore.claimTimedOutEvents(policy).get(0).attempt());
+
+        // and never after its last attempt
+        Thread.sleep(110);
+        assertTrue(eventStore.claimTimedOutEvents(policy).isEmpty());
+    }
+
+    @Test
+    void testTimedOutSiblingEventsKeepTheirAttempts() throws Exception {
+
+        // given a store without a timeout worker polling it
+        InMemoryEventStore eventStore = new InMemoryEventStore();
+        String metadata = Json.serialize(new WorkflowOptions("deadline-sibling-id", Duration.ofMillis(1)));
+
+        // when a workflow and its activity both run past their deadline
+        eventStore.saveWithRetry(() -> new EventEntity("1", "deadline-sibling-id", 1L, 1L, Category.WORKFLOW,
+                "ExampleWorkflowWithActivity", "execute", "1", Status.STARTED, null, metadata));
+        eventStore.saveWithRetry(() -> new EventEntity("2", "deadline-sibling-id", 2L, 2L, Category.ACTIVITY,
+                "ExampleActivity", "doSomething", "1", Status.STARTED, null, metadata));
+        Thread.sleep(10);
+
+        // then each poll claims only the earliest of them, on its first attempt
+        TimeoutRecoveryPolicy policy = new TimeoutRecoveryPolicy(2, Duration.ofSeconds(1), Duration.ofSeconds(1));
+        List<TimeoutClaim> first = eventStore.claimTimedOutEvents(policy);
+        assertEquals(List.of(1L), first.stream().map(claim -> claim.event().correlationNumber()).toList());
+        assertEquals(1, first.get(0).attempt());
+
+        List<TimeoutClaim> second = eventStore.claimTimedOutEvents(policy);
+        assertEquals(List.of(2L), second.stream().map(claim -> claim.event().correlationNumber()).toList());
+        assertEquals(1, second.get(0).attempt());
+    }
+
+    @Test
+    void testSignalIsStoredBeforeLaterStepsComplete() throws Exception {
+
+        // given a store that holds up the signals sent by one thread once they have a sequence number
+        CountDownLatch allocated = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread[] slowSender = new Thread[1];
+        InMemoryEventStore eventStore = new InMemoryEventStore() {
+            @Override
+            public Long getNextSequenceNumber(String workflowId) {
+                Long sequenceNumber = super.getNextSequenceNumber(workflowId);
+                if (Thread.currentThread() == slowSender[0]) {
+                    allocated.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return sequenceNumber;
+            }
+        };
+        Maestro maestro = MaestroService.builder()
+                .configureEventStore(eventStore)
+                .build();
+        maestro.registerWorkflowImplementationTypes(ExampleWorkflowWithSignal.class);
+
+        // and a workflow waiting on a signal
+        String workflowId = "signal-vs-step-id";
+        ExampleWorkflowWithSignal workflow = MaestroService.newWorkflow(ExampleWorkflowWithSignal.class, new WorkflowOptions(workflowId));
+        assertNull(workflow.execute(1));
+
+        // when one signal is being stored while another lets the workflow complete
+        slowSender[0] = new Thread(() -> {
+            try {
+                workflow.doContinue(false);
+            } finally {
+                allocated.countDown();
+            }
+        });
+        slowSender[0].start();
+        allocated.await();
+        workflow.doContinue(true);
+        Awaitility.await().atMost(5, TimeUnit.SECONDS)
+                .until(() -> MaestroService.getWorkflowEvents(workflowId).get(0).endTimestamp() != null);
+        release.countDown();
+        slowSender[0].join();
+
+        // then no signal was stored after a completed step numbered above it, which would apply it earlier on replay
+        List<EventEntity> history = eventStore.getHistory(workflowId);
+        for (EventEntity signal : history) {
+            if (signal.category() != Category.SIGNAL) continue;
+            for (EventEntity completed : history) {
+                if (completed.status() != Status.COMPLETED || completed.sequenceNumber() < signal.sequenceNumber()) continue;
+                assertFalse(Instant.parse(signal.timestamp()).isAfter(Instant.parse(completed.timestamp())),
+                        "signal " + signal.sequenceNumber() + " stored after completed event " + completed.sequenceNumber());
+            }
+        }
+    }
+
+    @Test
+    void testSaveAllStoresNothingWhenAnEventConflicts() {
+
+        // given a store with one event of a workflow
+        InMemoryEventStore eventStore = new InMemoryEventStore();
+        eventStore.saveAll(List.of(new EventEntity("1", "batch-existing-id", 1L, 1L, Category.WORKFLOW,
+                "ExampleWorkflowWithSignal", "execute", "1", Status.STARTED, null, null)));
+
+        // when a batch across workflows takes the sequence number of that event with its last row
+        List<EventEntity> batch = List.of(
+                new EventEntity("2", "batch-new-id", 1L, 1L, Category.WORKFLOW,
+                        "ExampleSimpleWorkflow", "execute", "2", Status.STARTED, null, null),
+                new EventEntity("3", "batch-existing-id", null, 2L, Category.SIGNAL,
+                        "ExampleWorkflowWithSignal", "doContinue", "true", Status.RECEIVED, null, null),
+                new EventEntity("4", "batch-existing-id", null, 1L, Category.SIGNAL,
+                        "ExampleWorkflowWithSignal", "doContinue", "true", Status.RECEIVED, null, null));
+
+        // then the batch fails and none of its rows were stored
+        assertThrows(WorkflowSequenceConflict.class, () -> eventStore.saveAll(batch));
+        assertTrue(eventStore.getHistory("batch-new-id", 0L).isEmpty());
+        assertEquals(1, eventStore.getHistory("batch-existing-id", 0L).size());
+
+        // and neither is a batch conflicting with itself
+        List<EventEntity> selfConflicting = List.of(batch.get(0), batch.get(1), batch.get(1));
+        assertThrows(WorkflowSequenceConflict.class, () -> eventStore.saveAll(selfConflicting));
+        assertTrue(eventStore.getHistory("batch-new-id", 0L).isEmpty());
+    }
+
+    @Test
+    void testWorkflowsArePagedNewestFirstWithFilters() throws Exception {
+
+        // given a store with five workflows started one after another, the middle one completed
+        InMemoryEventStore eventStore = new InMemoryEventStore();
+        for (int i = 1; i <= 5; i++) {
+            String workflowId = "paged-id-" + i;
+            eventStore.saveWithRetry(() -> new EventEntity(workflowId + "-started", workflowId, 1L, 1L, Category.WORKFLOW,
+                    "ExampleSimpleWorkflow", "execute", "1", Status.STARTED, null, null));
+            Thread.sleep(2);
+        }
+        eventStore.saveWithRetry(() -> new EventEntity("paged-id-3-completed", "paged-id-3", 1L, 2L, Category.WORKFLOW,
+                "ExampleSimpleWorkflow", "execute", "\"1\"", Status.COMPLETED, null, null));
+
+        // when paging through them two at a time
+        WorkflowPage first = eventStore.getWorkflows(WorkflowQuery.firstPage(2));
+        WorkflowPage second = eventStore.getWorkflows(new WorkflowQuery(null, null, null, null, WorkflowCursor.decode(first.nextCursor()), 2));
+        WorkflowPage last = eventStore.getWorkflows(new WorkflowQuery(null, null, null, null, WorkflowCursor.decode(second.nextCursor()), 2));
+
+        // then each page continues where the previous one ended, newest first
+        assertEquals(List.of("paged-id-5", "paged-id-4"), first.workflows().stream().map(WorkflowModel::workflowId).toList());
+        assertEquals(List.of("paged-id-3", "paged-id-2"), second.workflows().stream().map(WorkflowModel::workflowId).toList());
+        assertEquals(List.of("paged-id-1"), last.workflows().stream().map(WorkflowModel::workflowId).toList());
+        assertNull(last.nextCursor());
+
+        // and the summary reflects the completed workflow
+        WorkflowModel completed = second.workflows().get(0);
+        assertEquals(Status.COMPLETED, completed.status());
+        assertEquals("\"1\"", completed.output());
+        assertEquals(2, completed.eventCount());
+
+        // and filters narrow the pages
+        WorkflowPage running = eventStore.getWorkflows(new WorkflowQuery(Status.STARTED, "ExampleSimpleWorkflow",
+                first.workflows().get(1).startTimestamp().plusNanos(1), null, null, 10));
+        assertEquals(List.of("paged-id-5"), running.workflows().stream().map(WorkflowModel::workflowId).toList());
+    }
+
+    @Test
+    void testReplayIsMeasuredPerWorkflowType() {
+
+        // given a configured maestro reporting to its own metrics
+        PrometheusMetrics metrics = new PrometheusMetrics();
+        Maestro maestro = MaestroService.builder()
+                .configureInMemoryEventStore()
+                .configureMetrics(metrics)
+                .build();
+        maestro.registerWorkflowImplementationTypes(ExampleWorkflowWithActivity.class);
+        maestro.registerActivity(new ExampleMathActivityImpl());
+
+        // when a workflow with two activities runs and is then executed again
+        String workflowId = "metrics-replay-id";
+        ExampleWorkflowWithActivity.ExampleWorkflowWithActivityParam param = new ExampleWorkflowWithActivity.ExampleWorkflowWithActivityParam(100, 2L, 20L);
+        MaestroService.newWorkflow(ExampleWorkflowWithActivity.class, new WorkflowOptions(workflowId)).execute(param);
+        String output = MaestroService.newWorkflow(ExampleWorkflowWithActivity.class, new WorkflowOptions(workflowId)).execute(param);
+        assertEquals("180", output);
+
+        // then both executions are measured, the second replaying both activities and the completion
+        StringWriter scrape = new StringWriter();
+        metrics.scrape(scrape);
+        String text = scrape.toString();
+        assertTrue(text.contains("# TYPE maestro_workflow_replay_seconds summary\n"), text);
+        assertTrue(text.contains("maestro_workflow_replay_seconds_count{workflow=\"ExampleWorkflowWithActivity\"} 2\n"), text);
+        assertTrue(text.contains("maestro_workflow_replay_steps_sum{workflow=\"ExampleWorkflowWithActivity\"} 3.0\n"), text);
+
+        // and only the first execution ran its steps
+        assertTrue(text.contains("maestro_step_db_round_trips_count{step=\"activity\"} 2\n"), text);
+        assertTrue(text.contains("maestro_step_db_round_trips_count{step=\"workflow\"} 1\n"), text);
+        assertTrue(text.contains("maestro_execution_queue_depth 0.0\n"), text);
+
+        // and the completion it found already stored counts as a conflict
+        assertTrue(text.contains("maestro_event_conflicts_total{index=\"correlation_status\"} 1\n"), text);
+    }
+}
@@ -0,0 +1,90 @@
+package lucidity.maestro.engine.benchmark;
+
+import lucidity.maestro.engine.internal.util.Json;
+import lucidity.maestro.engine.internal.util.MethodDescriptor;
+import lucidity.maestro.engine.internal.util.TypeDescriptor;
+import lucidity.maestro.engine.util.ExampleMathActivity;
+import lucidity.maestro.engine.util.ExampleMathActivityImpl;
+import lucidity.maestro.engine.util.ExampleWorkflowWithSignal;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-activity dispatch overhead of the engine: deserializing the recorded input and invoking the activity,
+ * returning a replayed output, and looking up a signal method by name. Compares the previous per-call
+ * reflection with the cached {@link MethodDescriptor}s.
+ * <p>
+ * Run with: {@code gradle :maestro-core:test -Pbenchmark -Pstdout --tests '*ActivityDispatchBenchmark'}
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(0)
+public class ActivityDispatchBenchmark {
+
+    private static final String INPUT = Json.serialize(new ExampleMathActivity.MathOperationInput(6L, 7L));
+    private static final String OUTPUT = Json.serialize(42L);
+
+    private final Object activity = new ExampleMathActivityImpl();
+    private final ExampleWorkflowWithSignal workflow = new ExampleWorkflowWithSignal();
+    private Method method;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        method = ExampleMathActivity.class.getMethod("multiply", ExampleMathActivity.MathOperationInput.class);
+    }
+
+    @Test
+    void compareActivityDispatch() throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ActivityDispatchBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+
+    @Benchmark
+    public Object reflectiveDispatch() throws Exception {
+        Type[] paramTypes = method.getGenericParameterTypes();
+        Object[] finalArgs = new Object[]{Json.deserialize(INPUT, paramTypes[0])};
+        return method.invoke(activity, finalArgs);
+    }
+
+    @Benchmark
+    public Object descriptorDispatch() throws Exception {
+        MethodDescriptor descriptor = TypeDescriptor.of(activity.getClass()).method(method);
+        return descriptor.invoke(activity, descriptor.deserializeArguments(INPUT));
+    }
+
+    @Benchmark
+    public Object reflectiveReplay() {
+        return Json.deserialize(OUTPUT, method.getGenericReturnType());
+    }
+
+    @Benchmark
+    public Object descriptorReplay() {
+        return TypeDescriptor.of(activity.getClass()).method(method).deserializeReturnValue(OUTPUT);
+    }
+
+    @Benchmark
+    public Object reflectiveSignalLookup() {
+        return Arrays.stream(workflow.getClass().getMethods())
+                .filter(m -> m.getName().equals("doContinue"))
+                .findFirst().get();
+    }
+
+    @Benchmark
+    public Object descriptorSignalLookup() {
+        return TypeDescriptor.of(workflow.getClass()).method("doContinue");
+    }
+}
@@ -0,0 +1,175 @@
+package lucidity.maestro.engine.benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lucidity.maestro.engine.internal.entity.Category;
+import lucidity.maestro.engine.internal.entity.EventEntity;
+import lucidity.maestro.engine.internal.entity.Status;
+import lucidity.maestro.engine.internal.repo.EventRepo;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Concurrent signalers appending SIGNAL events to the same workflow, comparing the previous
+ * read-max-then-insert allocation, retried through {@link EventRepo#saveWithRetry} so that conflicts pay the
+ * real backoff, with {@link EventRepo#saveWithNextSequenceNumber}, which signals use now.
+ * <p>
+ * Run with: {@code gradle :maestro-core:test -Pbenchmark -Pstdout --tests '*SequenceAllocationBenchmark'}
+ */
+@Tag("benchmark")
+@Testcontainers
+public class SequenceAllocationBenchmark {
+
+    private static final int SIGNALERS = 8;
+    private static final int SIGNALS_PER_SIGNALER = 50;
+
+    //language=SQL
+    private static final String LEGACY_MAX_SEQUENCE_NUMBER = "SELECT max(sequence_number) FROM event WHERE workflow_id = ?";
+
+    @Container
+    private static final PostgreSQLContainer<?> postgresqlContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"))
+            .withDatabaseName("benchmark-database")
+            .withUsername("benchmark-user")
+            .withPassword("benchmark-password");
+
+    private static HikariDataSource dataSource;
+    private static EventRepo eventRepo;
+
+    @BeforeAll
+    static void setUp() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(postgresqlContainer.getJdbcUrl());
+        config.setUsername(postgresqlContainer.getUsername());
+        config.setPassword(postgresqlContainer.getPassword());
+        config.setMaximumPoolSize(10);
+        dataSource = new HikariDataSource(config);
+
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        eventRepo = new EventRepo(dataSource);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void compareSequenceAllocation() throws Exception {
+        Result before = run("max-scan", (workflowId, attempts) -> eventRepo.saveWithRetry(() -> {
+            attempts.incrementAndGet();
+            return signal(workflowId, legacyNextSequenceNumber(workflowId));
+        }));
+        Result after = run("cte-insert", (workflowId, attempts) -> {
+            attempts.incrementAndGet();
+            eventRepo.saveWithNextSequenceNumber(signal(workflowId, null));
+        });
+
+        System.out.println(before);
+        System.out.println(after);
+    }
+
+    private Result run(String name, BiConsumer<String, AtomicLong> saveSignal) throws InterruptedException {
+        String workflowId = name + "-" + UUID.randomUUID();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong attempts = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+
+        ExecutorService executor = Executors.newFixedThreadPool(SIGNALERS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < SIGNALERS; i++) {
+            executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < SIGNALS_PER_SIGNALER; j++) {
+                    long begin = System.nanoTime();
+                    try {
+                        saveSignal.accept(workflowId, attempts);
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                    }
+                    latencies.add(System.nanoTime() - begin);
+                }
+                return null;
+            });
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - begin;
+
+        return new Result(name, latencies, attempts.get(), failures.get(), elapsed);
+    }
+
+    private static EventEntity signal(String workflowId, Long sequenceNumber) {
+        return new EventEntity(
+                UUID.randomUUID().toString(), workflowId,
+                null, sequenceNumber,
+                Category.SIGNAL, "Benchmark", "signal",
+                "true", Status.RECEIVED, null, null
+        );
+    }
+
+    private static Long legacyNextSequenceNumber(String workflowId) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(LEGACY_MAX_SEQUENCE_NUMBER)) {
+
+            preparedStatement.setString(1, workflowId);
+            ResultSet resultSet = preparedStatement.executeQuery();
+
+            if (resultSet.next()) return resultSet.getLong(1) + 1;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return 1L;
+    }
+
+    private record Result(String name, List<Long> latencies, long attempts, long failures, long elapsedNanos) {
+
+        long signals() {
+            return latencies.size();
+        }
+
+        double conflictRate() {
+            return (double) (attempts - (signals() - failures)) / attempts;
+        }
+
+        double percentileMillis(double percentile) {
+            List<Long> sorted = new ArrayList<>(latencies);
+            Collections.sort(sorted);
+            int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+            return sorted.get(Math.max(index, 0)) / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return "%-12s signals=%d attempts=%d conflictRate=%.1f%% failed=%d p50=%.1fms p99=%.1fms throughput=%.0f/s".formatted(
+                    name, signals(), attempts, conflictRate() * 100, failures,
+                    percentileMillis(0.50), percentileMillis(0.99),
+                    signals() / (elapsedNanos / 1_000_000_000.0)
+            );
+        }
+    }
+}
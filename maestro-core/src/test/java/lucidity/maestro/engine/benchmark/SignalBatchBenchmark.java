@@ -0,0 +1,61 @@
+package lucidity.maestro.engine.benchmark;
+
+import lucidity.maestro.engine.MaestroService;
+import lucidity.maestro.engine.api.Maestro;
+import lucidity.maestro.engine.api.signal.Signal;
+import lucidity.maestro.engine.api.workflow.WorkflowOptions;
+import lucidity.maestro.engine.util.ExampleWorkflowWithSignal;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Ingestion of signals for workflows that haven't started, comparing one {@code @SignalFunction} call per signal
+ * with {@link Maestro#signal}. Only the store path is measured, no workflow is resumed.
+ * <p>
+ * Run with: {@code gradle :maestro-core:test -Pbenchmark -Pstdout --tests '*SignalBatchBenchmark'}
+ */
+@Tag("benchmark")
+public class SignalBatchBenchmark {
+
+    private static final int SIGNALS = 100_000;
+    private static final int WORKFLOWS = 1_000;
+    private static final int BATCH_SIZE = 10_000;
+
+    @Test
+    void compareSignalIngestion() {
+        Maestro maestro = MaestroService.builder().configureInMemoryEventStore().build();
+        maestro.registerWorkflowImplementationTypes(ExampleWorkflowWithSignal.class);
+
+        String prefix = UUID.randomUUID().toString();
+        List<ExampleWorkflowWithSignal> workflows = new ArrayList<>();
+        for (int i = 0; i < WORKFLOWS; i++) {
+            workflows.add(MaestroService.newWorkflow(ExampleWorkflowWithSignal.class, new WorkflowOptions(prefix + "-single-" + i)));
+        }
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < SIGNALS; i++) {
+            workflows.get(i % WORKFLOWS).doContinue(false);
+        }
+        print("single-calls", System.nanoTime() - begin);
+
+        begin = System.nanoTime();
+        List<Signal> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < SIGNALS; i++) {
+            batch.add(new Signal(prefix + "-batch-" + (i % WORKFLOWS), "doContinue", false));
+            if (batch.size() == BATCH_SIZE) {
+                maestro.signal(ExampleWorkflowWithSignal.class, batch);
+                batch.clear();
+            }
+        }
+        print("batches-of-" + BATCH_SIZE, System.nanoTime() - begin);
+    }
+
+    private static void print(String name, long elapsedNanos) {
+        System.out.printf("%-18s signals=%d elapsed=%.0fms throughput=%.0f/s%n",
+                name, SIGNALS, elapsedNanos / 1_000_000.0, SIGNALS / (elapsedNanos / 1_000_000_000.0));
+    }
+}
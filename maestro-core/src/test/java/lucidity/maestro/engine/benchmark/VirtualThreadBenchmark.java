@@ -0,0 +1,124 @@
+package lucidity.maestro.engine.benchmark;
+
+import lucidity.maestro.engine.MaestroService;
+import lucidity.maestro.engine.api.Maestro;
+import lucidity.maestro.engine.api.activity.Activity;
+import lucidity.maestro.engine.api.activity.ActivityInterface;
+import lucidity.maestro.engine.api.signal.SignalFunction;
+import lucidity.maestro.engine.api.workflow.RunnableWorkflow;
+import lucidity.maestro.engine.api.workflow.WorkflowOptions;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * Signal-triggered executions of workflows whose activity blocks like JDBC or HTTP I/O would, comparing the
+ * fixed pool with virtual threads by peak concurrently running activities and completed workflows per second.
+ * The virtual-thread run needs Java 21 and is skipped otherwise.
+ * <p>
+ * Run with: {@code gradle :maestro-core:test -Pbenchmark -Pstdout --tests '*VirtualThreadBenchmark'}
+ */
+@Tag("benchmark")
+public class VirtualThreadBenchmark {
+
+    private static final int WORKFLOWS = 400;
+    private static final long ACTIVITY_MILLIS = 20;
+
+    private static final AtomicInteger inFlight = new AtomicInteger();
+    private static final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @Test
+    void compareExecutors() {
+        System.out.println(run("fixed-pool", UnaryOperator.identity()));
+
+        if (Runtime.version().feature() < 21) {
+            System.out.println("virtual-threads skipped, running on Java " + Runtime.version().feature());
+        } else {
+            System.out.println(run("virtual-threads", MaestroService.MaestroServiceBuilder::configureVirtualThreads));
+        }
+    }
+
+    private Result run(String name, UnaryOperator<MaestroService.MaestroServiceBuilder> configuration) {
+        Maestro maestro = configuration.apply(MaestroService.builder().configureInMemoryEventStore()).build();
+        maestro.registerWorkflowImplementationTypes(BlockingWorkflow.class);
+        maestro.registerActivity(new BlockingActivityImpl());
+        inFlight.set(0);
+        maxInFlight.set(0);
+
+        // every workflow parks on its await until signaled
+        List<String> workflowIds = new ArrayList<>();
+        List<BlockingWorkflow> workflows = new ArrayList<>();
+        for (int i = 0; i < WORKFLOWS; i++) {
+            String workflowId = name + "-" + UUID.randomUUID();
+            BlockingWorkflow workflow = MaestroService.newWorkflow(BlockingWorkflow.class, new WorkflowOptions(workflowId));
+            workflow.execute(i);
+            workflowIds.add(workflowId);
+            workflows.add(workflow);
+        }
+
+        long begin = System.nanoTime();
+        workflows.forEach(workflow -> workflow.proceed(true));
+        Awaitility.await().atMost(5, TimeUnit.MINUTES).pollInterval(10, TimeUnit.MILLISECONDS).until(() -> workflowIds.stream()
+                .allMatch(workflowId -> MaestroService.getWorkflowEvents(workflowId).get(0).endTimestamp() != null));
+        long elapsed = System.nanoTime() - begin;
+
+        return new Result(name, elapsed, maxInFlight.get());
+    }
+
+    @ActivityInterface
+    public interface BlockingActivity {
+        Integer call(Integer input);
+    }
+
+    public static class BlockingActivityImpl implements BlockingActivity {
+        @Override
+        public Integer call(Integer input) {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(ACTIVITY_MILLIS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return input;
+        }
+    }
+
+    public static class BlockingWorkflow implements RunnableWorkflow<Integer, Integer> {
+
+        @Activity
+        private BlockingActivity blockingActivity;
+
+        private boolean proceed = false;
+
+        @Override
+        public Integer execute(Integer input) {
+            MaestroService.await(() -> proceed);
+            return blockingActivity.call(input);
+        }
+
+        @SignalFunction
+        public void proceed(boolean proceed) {
+            this.proceed = proceed;
+        }
+    }
+
+    private record Result(String name, long elapsedNanos, int maxInFlight) {
+
+        @Override
+        public String toString() {
+            return "%-16s workflows=%d maxInFlight=%d elapsed=%.0fms throughput=%.0f/s".formatted(
+                    name, WORKFLOWS, maxInFlight, elapsedNanos / 1_000_000.0,
+                    WORKFLOWS / (elapsedNanos / 1_000_000_000.0)
+            );
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package lucidity.maestro.engine.benchmark;
+
+import lucidity.maestro.engine.MaestroService;
+import lucidity.maestro.engine.api.Maestro;
+import lucidity.maestro.engine.api.workflow.WorkflowOptions;
+import lucidity.maestro.engine.internal.util.Util;
+import lucidity.maestro.engine.util.ExampleSimpleWorkflow;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.implementation.StubMethod;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.IntConsumer;
+
+import static net.bytebuddy.matcher.ElementMatchers.named;
+
+/**
+ * Workflow instances per second when every {@code newWorkflow} call generated and loaded its own
+ * ByteBuddy subclass, compared with the subclass generated once at registration time.
+ * <p>
+ * Run with: {@code gradle :maestro-core:test -Pbenchmark -Pstdout --tests '*WorkflowInstantiationBenchmark'}
+ */
+@Tag("benchmark")
+public class WorkflowInstantiationBenchmark {
+
+    private static final int WARMUP = 1_000;
+    private static final int INSTANCES = 10_000;
+
+    @Test
+    void compareWorkflowInstantiation() {
+        Maestro maestro = MaestroService.builder()
+                .configureInMemoryEventStore()
+                .build();
+        maestro.registerWorkflowImplementationTypes(ExampleSimpleWorkflow.class);
+
+        Result before = run("per-call", i -> Util.createInstance(new ByteBuddy()
+                .subclass(ExampleSimpleWorkflow.class)
+                .method(named("execute"))
+                .intercept(StubMethod.INSTANCE)
+                .make()
+                .load(getClass().getClassLoader())
+                .getLoaded()));
+        Result after = run("cached", i -> MaestroService.newWorkflow(ExampleSimpleWorkflow.class, new WorkflowOptions("benchmark-" + i)));
+
+        System.out.println(before);
+        System.out.println(after);
+    }
+
+    private Result run(String name, IntConsumer newWorkflow) {
+        for (int i = 0; i < WARMUP; i++) newWorkflow.accept(i);
+
+        System.gc();
+        long loadedClasses = ManagementFactory.getClassLoadingMXBean().getTotalLoadedClassCount();
+        long metaspace = metaspaceUsed();
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < INSTANCES; i++) newWorkflow.accept(i);
+        long elapsed = System.nanoTime() - begin;
+
+        // measured before collecting, unreachable generated classes are unloaded by a full gc
+        return new Result(
+                name, elapsed,
+                ManagementFactory.getClassLoadingMXBean().getTotalLoadedClassCount() - loadedClasses,
+                metaspaceUsed() - metaspace
+        );
+    }
+
+    private static long metaspaceUsed() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> "Metaspace".equals(pool.getName()))
+                .mapToLong(pool -> pool.getUsage().getUsed())
+                .sum();
+    }
+
+    private record Result(String name, long elapsedNanos, long loadedClasses, long metaspaceBytes) {
+
+        @Override
+        public String toString() {
+            return "%-9s instances=%d throughput=%.0f/s loadedClasses=%d metaspaceGrowth=%.1fMB".formatted(
+                    name, INSTANCES, INSTANCES / (elapsedNanos / 1_000_000_000.0),
+                    loadedClasses, metaspaceBytes / (1024.0 * 1024.0)
+            );
+        }
+    }
+}
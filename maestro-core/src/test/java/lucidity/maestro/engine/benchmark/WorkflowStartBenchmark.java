@@ -0,0 +1,58 @@
+package lucidity.maestro.engine.benchmark;
+
+import lucidity.maestro.engine.MaestroService;
+import lucidity.maestro.engine.api.Maestro;
+import lucidity.maestro.engine.api.workflow.WorkflowOptions;
+import lucidity.maestro.engine.api.workflow.WorkflowStart;
+import lucidity.maestro.engine.util.ExampleSimpleWorkflow;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Backfill of workflows, comparing {@code newWorkflow(...).execute(...)} per workflow on the caller thread with
+ * {@link Maestro#startWorkflows}, which stores the STARTED events in batches and runs the executions on the queue.
+ * <p>
+ * Run with: {@code gradle :maestro-core:test -Pbenchmark -Pstdout --tests '*WorkflowStartBenchmark'}
+ */
+@Tag("benchmark")
+public class WorkflowStartBenchmark {
+
+    private static final int WORKFLOWS = 50_000;
+
+    @Test
+    void compareWorkflowStarts() {
+        Maestro maestro = MaestroService.builder().configureInMemoryEventStore().build();
+        maestro.registerWorkflowImplementationTypes(ExampleSimpleWorkflow.class);
+        String prefix = UUID.randomUUID().toString();
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < WORKFLOWS; i++) {
+            MaestroService.newWorkflow(ExampleSimpleWorkflow.class, new WorkflowOptions(prefix + "-single-" + i)).execute(i);
+        }
+        print("single-starts", System.nanoTime() - begin);
+
+        List<WorkflowStart> starts = new ArrayList<>(WORKFLOWS);
+        for (int i = 0; i < WORKFLOWS; i++) {
+            starts.add(new WorkflowStart(new WorkflowOptions(prefix + "-bulk-" + i), i));
+        }
+
+        begin = System.nanoTime();
+        maestro.startWorkflows(ExampleSimpleWorkflow.class, starts);
+        Awaitility.await().atMost(5, TimeUnit.MINUTES).pollInterval(10, TimeUnit.MILLISECONDS).until(() -> {
+            var metrics = MaestroService.getExecutionQueueMetrics();
+            return metrics.queueDepth() == 0 && metrics.running() == 0;
+        });
+        print("bulk-start", System.nanoTime() - begin);
+    }
+
+    private static void print(String name, long elapsedNanos) {
+        System.out.printf("%-14s workflows=%d elapsed=%.0fms throughput=%.0f/s%n",
+                name, WORKFLOWS, elapsedNanos / 1_000_000.0, WORKFLOWS / (elapsedNanos / 1_000_000_000.0));
+    }
+}
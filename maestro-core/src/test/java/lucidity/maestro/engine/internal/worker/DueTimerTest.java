@@ -0,0 +1,36 @@
+package lucidity.maestro.engine.internal.worker;
+
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DueTimerTest {
+
+    @Test
+    void testRunsOnceForEachDistinctDueTime() {
+
+        // given a timer recording when it runs
+        List<Long> runs = new CopyOnWriteArrayList<>();
+        DueTimer dueTimer = new DueTimer(() -> runs.add(System.currentTimeMillis()));
+        Instant now = Instant.now();
+
+        // when wakeups are requested out of order, two of them for the same time
+        dueTimer.wakeAt(now.plusMillis(600));
+        dueTimer.wakeAt(now.plusMillis(300));
+        dueTimer.wakeAt(now.plusMillis(300));
+
+        // then it runs once per distinct time, none of them early
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> runs.size() == 2);
+        assertTrue(runs.get(0) >= now.plusMillis(300).toEpochMilli());
+        assertTrue(runs.get(1) >= now.plusMillis(600).toEpochMilli());
+
+        Awaitility.await().pollDelay(200, TimeUnit.MILLISECONDS).until(() -> true);
+        assertEquals(2, runs.size());
+    }
+}
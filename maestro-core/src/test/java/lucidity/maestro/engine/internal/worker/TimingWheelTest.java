@@ -0,0 +1,62 @@
+package lucidity.maestro.engine.internal.worker;
+
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelTest {
+
+    @Test
+    void testTimersExpireInOrderAndNeverEarly() {
+
+        // given a wheel recording when each timer expires
+        Map<Integer, Long> expiredAt = new ConcurrentHashMap<>();
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        TimingWheel<Integer> wheel = new TimingWheel<>(items -> items.forEach(item -> {
+            expiredAt.put(item, System.nanoTime());
+            order.add(item);
+        }));
+        long addedAt = System.nanoTime();
+
+        // when timers are added on every level below a few seconds, across turn boundaries of the lower ones
+        List<Integer> delays = List.of(1_500, 5, 70, 300, 63, 64, 4_100);
+        delays.forEach(delay -> wheel.add(Duration.ofMillis(delay), delay));
+
+        // then each expires once, in order of its delay and no earlier than it
+        Awaitility.await().atMost(10, TimeUnit.SECONDS).until(() -> order.size() == delays.size());
+        assertEquals(delays.stream().sorted().toList(), order);
+        delays.forEach(delay -> assertTrue(expiredAt.get(delay) - addedAt >= TimeUnit.MILLISECONDS.toNanos(delay)));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testTimersExpiringInTheSameTickAreBatched() {
+
+        // given a wheel recording its batches
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        TimingWheel<String> wheel = new TimingWheel<>(batches::add);
+
+        // when many timers are added for the same moment
+        for (int i = 0; i < 100; i++) wheel.add(Duration.ofMillis(200), "timer-" + i);
+
+        // then they expire in a few batches, not one by one
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> batches.stream().mapToInt(List::size).sum() == 100);
+        assertTrue(batches.size() <= 3);
+    }
+
+    @Test
+    void testRejectsDelaysBeyondTheHorizon() {
+        TimingWheel<String> wheel = new TimingWheel<>(items -> {
+        });
+
+        assertThrows(IllegalArgumentException.class, () -> wheel.add(TimingWheel.HORIZON, "too late"));
+    }
+}
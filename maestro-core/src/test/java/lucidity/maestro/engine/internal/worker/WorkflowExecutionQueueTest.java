@@ -0,0 +1,103 @@
+package lucidity.maestro.engine.internal.worker;
+
+import lucidity.maestro.engine.internal.dto.ExecutionQueueMetrics;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkflowExecutionQueueTest {
+
+    @Test
+    void testExecutionsOfOneWorkflowRunInOrderAndMerge() throws Exception {
+
+        // given a queue with plenty of threads
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        WorkflowExecutionQueue queue = new WorkflowExecutionQueue(executor, 100);
+        List<String> executed = new CopyOnWriteArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+
+        // when a workflow's execution is running
+        assertTrue(queue.submit("workflow-a", () -> {
+            await(release);
+            executed.add("a1");
+        }));
+        // and two more executions of it are requested
+        assertTrue(queue.submit("workflow-a", () -> executed.add("a2")));
+        assertTrue(queue.submit("workflow-a", () -> executed.add("a3")));
+        // and another workflow is requested too
+        assertTrue(queue.submit("workflow-b", () -> executed.add("b1")));
+
+        // then the other workflow isn't held up
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> executed.contains("b1"));
+        assertFalse(executed.contains("a2"));
+
+        // and once the running execution finishes, the requests merged into one run after it
+        release.countDown();
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> queue.metrics().running() == 0 && executed.size() == 3);
+        assertEquals(List.of("a1", "a2"), executed.stream().filter(e -> e.startsWith("a")).toList());
+
+        ExecutionQueueMetrics metrics = queue.metrics();
+        assertEquals(3, metrics.accepted());
+        assertEquals(1, metrics.merged());
+        assertEquals(0, metrics.queueDepth());
+
+        executor.shutdown();
+    }
+
+    @Test
+    void testDeferredExecutionRunsOnceTheQueueDrains() {
+
+        // given a queue with one thread and room for one waiting execution
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        WorkflowExecutionQueue queue = new WorkflowExecutionQueue(executor, 1);
+        List<String> executed = new CopyOnWriteArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+
+        // when one execution is running and another one is waiting for the thread
+        assertTrue(queue.submit("workflow-a", () -> {
+            await(release);
+            executed.add("a1");
+        }));
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> queue.metrics().running() == 1);
+        assertTrue(queue.submit("workflow-b", () -> executed.add("b1")));
+
+        // then a third one is deferred
+        assertFalse(queue.submit("workflow-c", () -> executed.add("c1")));
+        assertEquals(1, queue.metrics().deferred());
+
+        // and still runs once the queue drains, without anything else being submitted
+        release.countDown();
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> executed.size() == 3);
+        assertEquals(List.of("a1", "b1", "c1"), executed);
+
+        executor.shutdown();
+    }
+
+    @Test
+    void testCapacityMustBePositive() {
+
+        // given an executor
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // then a queue without room for a single waiting execution is rejected
+        assertThrows(IllegalArgumentException.class, () -> new WorkflowExecutionQueue(executor, 0));
+
+        executor.shutdown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
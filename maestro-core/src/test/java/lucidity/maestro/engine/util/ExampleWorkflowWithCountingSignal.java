@@ -0,0 +1,21 @@
+package lucidity.maestro.engine.util;
+
+import lucidity.maestro.engine.MaestroService;
+import lucidity.maestro.engine.api.signal.SignalFunction;
+import lucidity.maestro.engine.api.workflow.RunnableWorkflow;
+
+public class ExampleWorkflowWithCountingSignal implements RunnableWorkflow<Integer, Integer> {
+
+    private int count = 0;
+
+    @Override
+    public Integer execute(Integer expected) {
+        MaestroService.await(() -> this.count >= expected);
+        return count;
+    }
+
+    @SignalFunction
+    public void increment(int amount) {
+        this.count += amount;
+    }
+}
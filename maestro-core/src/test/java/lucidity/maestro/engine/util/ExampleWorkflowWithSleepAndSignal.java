@@ -0,0 +1,24 @@
+package lucidity.maestro.engine.util;
+
+import lucidity.maestro.engine.MaestroService;
+import lucidity.maestro.engine.api.signal.SignalFunction;
+import lucidity.maestro.engine.api.workflow.RunnableWorkflow;
+
+import java.time.Duration;
+
+public class ExampleWorkflowWithSleepAndSignal implements RunnableWorkflow<String, Integer> {
+
+    private boolean doContinue = false;
+
+    @Override
+    public String execute(Integer param) {
+        MaestroService.sleep(Duration.ofMillis(100));
+        MaestroService.await(() -> this.doContinue);
+        return param.toString();
+    }
+
+    @SignalFunction
+    public void doContinue(boolean doContinue) {
+        this.doContinue = doContinue;
+    }
+}
@@ -0,0 +1,44 @@
+package lucidity.maestro.engine.util;
+
+import lucidity.maestro.engine.MaestroService;
+import lucidity.maestro.engine.api.activity.Activity;
+import lucidity.maestro.engine.api.signal.SignalFunction;
+import lucidity.maestro.engine.api.workflow.RunnableWorkflow;
+import lucidity.maestro.engine.api.workflow.Snapshot;
+
+@Snapshot(everySteps = 2, progress = "stage")
+public class ExampleWorkflowWithSnapshot implements RunnableWorkflow<Long, Long> {
+
+    @Activity
+    private ExampleMathActivity exampleMathActivity;
+
+    private int stage = 0;
+    private Long total;
+    private boolean doContinue = false;
+
+    @Override
+    public Long execute(Long startWith) {
+        if (stage < 1) {
+            total = exampleMathActivity.multiply(new ExampleMathActivity.MathOperationInput(startWith, 2L));
+            stage = 1;
+        }
+        if (stage < 2) {
+            total = exampleMathActivity.subtract(new ExampleMathActivity.MathOperationInput(total, 1L));
+            stage = 2;
+        }
+        if (stage < 3) {
+            MaestroService.await(() -> this.doContinue);
+            stage = 3;
+        }
+        if (stage < 4) {
+            total = exampleMathActivity.multiply(new ExampleMathActivity.MathOperationInput(total, 10L));
+            stage = 4;
+        }
+        return total;
+    }
+
+    @SignalFunction
+    public void doContinue(boolean doContinue) {
+        this.doContinue = doContinue;
+    }
+}
@@ -0,0 +1,33 @@
+package lucidity.maestro.engine.util;
+
+import lucidity.maestro.engine.MaestroService;
+import lucidity.maestro.engine.api.activity.Activity;
+import lucidity.maestro.engine.api.signal.SignalFunction;
+import lucidity.maestro.engine.api.workflow.RunnableWorkflow;
+import lucidity.maestro.engine.api.workflow.Snapshot;
+
+// names a progress field but never advances it, so its steps run again from the top on every replay
+@Snapshot(everySteps = 2, progress = "stage")
+public class ExampleWorkflowWithUnguardedSnapshot implements RunnableWorkflow<Long, Long> {
+
+    @Activity
+    private ExampleMathActivity exampleMathActivity;
+
+    private int stage = 0;
+    private Long total = 0L;
+    private boolean doContinue = false;
+
+    @Override
+    public Long execute(Long startWith) {
+        total += exampleMathActivity.multiply(new ExampleMathActivity.MathOperationInput(startWith, 2L));
+        total = exampleMathActivity.subtract(new ExampleMathActivity.MathOperationInput(total, 1L));
+        MaestroService.await(() -> this.doContinue);
+        total = exampleMathActivity.multiply(new ExampleMathActivity.MathOperationInput(total, 10L));
+        return total;
+    }
+
+    @SignalFunction
+    public void doContinue(boolean doContinue) {
+        this.doContinue = doContinue;
+    }
+}
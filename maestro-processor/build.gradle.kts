@@ -0,0 +1,8 @@
+plugins {
+    id("java-library")
+    id("com.vanniktech.maven.publish") version "0.31.0"
+}
+
+java {
+    withSourcesJar()
+}
@@ -0,0 +1,137 @@
+package lucidity.maestro.processor;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// the source counterpart of the JDK proxy MaestroImpl creates for an activity, dispatching to the same InvocationHandler
+class ActivityStubGenerator {
+
+    private final ProcessingEnvironment processingEnv;
+    private final Elements elements;
+    private final Types types;
+
+    ActivityStubGenerator(ProcessingEnvironment processingEnv) {
+        this.processingEnv = processingEnv;
+        this.elements = processingEnv.getElementUtils();
+        this.types = processingEnv.getTypeUtils();
+    }
+
+    // null if the interface cannot be implemented in source, in which case the engine keeps using a JDK proxy
+    String generate(TypeElement type) {
+        if (!MaestroProcessor.isAccessible(type)) {
+            return skip(type, "it must be a non-private, non-generic interface");
+        }
+
+        List<ExecutableElement> methods = ElementFilter.methodsIn(elements.getAllMembers(type)).stream()
+                .filter(method -> method.getEnclosingElement().getKind() == ElementKind.INTERFACE)
+                .filter(method -> !method.getModifiers().contains(Modifier.STATIC) && !method.getModifiers().contains(Modifier.PRIVATE))
+                .toList();
+        for (ExecutableElement method : methods) {
+            if (!method.getTypeParameters().isEmpty()) {
+                return skip(type, "generic method " + method.getSimpleName() + " is not supported");
+            }
+        }
+
+        String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        String className = MaestroProcessor.simpleBinaryName(elements, type) + MaestroProcessor.ACTIVITY_SUFFIX;
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) source.append("package ").append(packageName).append(";\n\n");
+        source.append("@javax.annotation.processing.Generated(\"").append(MaestroProcessor.class.getName()).append("\")\n")
+                .append("@SuppressWarnings(\"unchecked\")\n")
+                .append("public final class ").append(className).append(" implements ").append(type.getQualifiedName()).append(" {\n\n")
+                .append("    private static final java.lang.reflect.Method[] METHODS = new java.lang.reflect.Method[").append(methods.size()).append("];\n\n")
+                .append("    static {\n")
+                .append("        try {\n");
+        for (int i = 0; i < methods.size(); i++) {
+            ExecutableElement method = methods.get(i);
+            TypeElement declaringType = (TypeElement) method.getEnclosingElement();
+            source.append("            METHODS[").append(i).append("] = ").append(declaringType.getQualifiedName())
+                    .append(".class.getMethod(\"").append(method.getSimpleName()).append("\"");
+            for (var parameter : method.getParameters()) {
+                source.append(", ").append(types.erasure(parameter.asType())).append(".class");
+            }
+            source.append(");\n");
+        }
+        source.append("        } catch (NoSuchMethodException e) {\n")
+                .append("            throw new ExceptionInInitializerError(e);\n")
+                .append("        }\n")
+                .append("    }\n\n")
+                .append("    private final java.lang.reflect.InvocationHandler handler;\n\n")
+                .append("    public ").append(className).append("(java.lang.reflect.InvocationHandler handler) {\n")
+                .append("        this.handler = handler;\n")
+                .append("    }\n");
+
+        for (int i = 0; i < methods.size(); i++) {
+            appendMethod(source, type, methods.get(i), i);
+        }
+
+        return source.append("}\n").toString();
+    }
+
+    private void appendMethod(StringBuilder source, TypeElement type, ExecutableElement method, int index) {
+        ExecutableType executableType = (ExecutableType) types.asMemberOf((DeclaredType) type.asType(), method);
+        TypeMirror returnType = executableType.getReturnType();
+        List<? extends TypeMirror> parameterTypes = executableType.getParameterTypes();
+
+        List<String> parameters = new ArrayList<>();
+        List<String> arguments = new ArrayList<>();
+        for (int i = 0; i < parameterTypes.size(); i++) {
+            parameters.add(parameterTypes.get(i) + " p" + i);
+            arguments.add("p" + i);
+        }
+
+        source.append("\n    @Override\n")
+                .append("    public ").append(returnType).append(" ").append(method.getSimpleName())
+                .append("(").append(String.join(", ", parameters)).append(")")
+                .append(WorkflowSubclassGenerator.throwsClause(executableType)).append(" {\n")
+                .append("        try {\n")
+                .append("            ").append(returnType.getKind() == TypeKind.VOID ? "" : "return (" + returnType + ") ")
+                .append("handler.invoke(this, METHODS[").append(index).append("], ")
+                .append(arguments.isEmpty() ? "null" : "new Object[]{" + String.join(", ", arguments) + "}").append(");\n")
+                .append("        } catch (RuntimeException | Error e) {\n")
+                .append("            throw e;\n")
+                .append("        }");
+        for (TypeMirror thrownType : checkedThrownTypes(executableType)) {
+            source.append(" catch (").append(thrownType).append(" e) {\n")
+                    .append("            throw e;\n")
+                    .append("        }");
+        }
+        source.append(" catch (Throwable t) {\n")
+                .append("            throw new java.lang.reflect.UndeclaredThrowableException(t);\n")
+                .append("        }\n")
+                .append("    }\n");
+    }
+
+    // rethrown in their own catch blocks, so unchecked and redundant subtypes are left out
+    private List<TypeMirror> checkedThrownTypes(ExecutableType executableType) {
+        TypeMirror runtimeException = elements.getTypeElement(RuntimeException.class.getName()).asType();
+        TypeMirror error = elements.getTypeElement(Error.class.getName()).asType();
+
+        List<? extends TypeMirror> thrownTypes = executableType.getThrownTypes();
+        return thrownTypes.stream()
+                .filter(thrownType -> !types.isSubtype(thrownType, runtimeException) && !types.isSubtype(thrownType, error))
+                .filter(thrownType -> thrownTypes.stream().noneMatch(other -> other != thrownType && !types.isSameType(other, thrownType) && types.isSubtype(thrownType, other)))
+                .collect(Collectors.toList());
+    }
+
+    private String skip(TypeElement type, String reason) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                "Not generating an activity stub for " + type.getQualifiedName() + " at compile time, " + reason, type);
+        return null;
+    }
+}
@@ -0,0 +1,106 @@
+package lucidity.maestro.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+
+/**
+ * Generates the workflow subclasses and activity stubs that the engine otherwise creates at runtime with
+ * ByteBuddy and JDK proxies. The engine picks them up by name, so types this processor cannot handle simply
+ * keep the runtime path.
+ * <p>
+ * The engine is referenced by name only, so the processor has no dependencies of its own.
+ */
+@SupportedAnnotationTypes("*")
+public class MaestroProcessor extends AbstractProcessor {
+
+    static final String RUNNABLE_WORKFLOW = "lucidity.maestro.engine.api.workflow.RunnableWorkflow";
+    static final String SIGNAL_FUNCTION = "lucidity.maestro.engine.api.signal.SignalFunction";
+    static final String ACTIVITY_INTERFACE = "lucidity.maestro.engine.api.activity.ActivityInterface";
+
+    // kept in sync with the suffixes MaestroImpl looks up
+    static final String WORKFLOW_SUFFIX = "$MaestroWorkflow";
+    static final String ACTIVITY_SUFFIX = "$MaestroActivity";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement runnableWorkflow = processingEnv.getElementUtils().getTypeElement(RUNNABLE_WORKFLOW);
+        if (runnableWorkflow == null) return false;
+
+        WorkflowSubclassGenerator workflowGenerator = new WorkflowSubclassGenerator(processingEnv, runnableWorkflow);
+        ActivityStubGenerator activityGenerator = new ActivityStubGenerator(processingEnv);
+
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            process(type, workflowGenerator, activityGenerator);
+        }
+        return false;
+    }
+
+    private void process(TypeElement type, WorkflowSubclassGenerator workflowGenerator, ActivityStubGenerator activityGenerator) {
+        // classes generated in an earlier round are root elements of the next one
+        if (type.getSimpleName().toString().endsWith(WORKFLOW_SUFFIX) || type.getSimpleName().toString().endsWith(ACTIVITY_SUFFIX)) return;
+
+        if (type.getKind() == ElementKind.CLASS && workflowGenerator.isWorkflow(type)) {
+            write(type, WORKFLOW_SUFFIX, workflowGenerator.generate(type));
+        } else if (type.getKind() == ElementKind.INTERFACE && hasAnnotation(type, ACTIVITY_INTERFACE)) {
+            write(type, ACTIVITY_SUFFIX, activityGenerator.generate(type));
+        }
+
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            if (nested.getModifiers().contains(Modifier.STATIC) || nested.getKind() == ElementKind.INTERFACE) {
+                process(nested, workflowGenerator, activityGenerator);
+            }
+        }
+    }
+
+    private void write(TypeElement type, String suffix, String source) {
+        if (source == null) return;
+
+        String generatedName = processingEnv.getElementUtils().getBinaryName(type) + suffix;
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(generatedName, type);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write " + generatedName + ": " + e.getMessage(), type);
+        }
+    }
+
+    static boolean hasAnnotation(Element element, String annotationName) {
+        return element.getAnnotationMirrors().stream()
+                .anyMatch(mirror -> ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName));
+    }
+
+    // the generated classes live next to the type and must be able to extend or implement it
+    static boolean isAccessible(TypeElement type) {
+        for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) return false;
+        }
+        return type.getTypeParameters().isEmpty();
+    }
+
+    // binary name without the package, e.g. Outer$Inner for a nested type
+    static String simpleBinaryName(Elements elements, TypeElement type) {
+        String binaryName = elements.getBinaryName(type).toString();
+        String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        return packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1);
+    }
+}
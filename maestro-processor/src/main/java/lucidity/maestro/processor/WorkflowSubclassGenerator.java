@@ -0,0 +1,155 @@
+package lucidity.maestro.processor;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// the source counterpart of the subclass MaestroImpl generates with ByteBuddy
+class WorkflowSubclassGenerator {
+
+    private final ProcessingEnvironment processingEnv;
+    private final Elements elements;
+    private final Types types;
+    private final TypeMirror runnableWorkflow;
+
+    WorkflowSubclassGenerator(ProcessingEnvironment processingEnv, TypeElement runnableWorkflow) {
+        this.processingEnv = processingEnv;
+        this.elements = processingEnv.getElementUtils();
+        this.types = processingEnv.getTypeUtils();
+        this.runnableWorkflow = types.erasure(runnableWorkflow.asType());
+    }
+
+    boolean isWorkflow(TypeElement type) {
+        return !type.getModifiers().contains(Modifier.ABSTRACT)
+                && types.isAssignable(types.erasure(type.asType()), runnableWorkflow);
+    }
+
+    // null if the type cannot be subclassed in source, in which case the engine keeps generating it at runtime
+    String generate(TypeElement type) {
+        if (!MaestroProcessor.isAccessible(type) || type.getModifiers().contains(Modifier.FINAL) || !hasNoArgConstructor(type)) {
+            return skip(type, "it must be a non-final, non-generic class with a non-private no-arg constructor");
+        }
+
+        List<ExecutableElement> methods = ElementFilter.methodsIn(elements.getAllMembers(type));
+        List<ExecutableElement> executeMethods = methods.stream()
+                .filter(method -> method.getSimpleName().contentEquals("execute") && method.getParameters().size() == 1)
+                .filter(method -> !method.getModifiers().contains(Modifier.ABSTRACT) && !method.getModifiers().contains(Modifier.STATIC))
+                .toList();
+        if (executeMethods.size() != 1 || executeMethods.get(0).getModifiers().contains(Modifier.FINAL)) {
+            return skip(type, "it must have exactly one non-final execute method");
+        }
+
+        List<ExecutableElement> signalMethods = methods.stream()
+                .filter(method -> MaestroProcessor.hasAnnotation(method, MaestroProcessor.SIGNAL_FUNCTION))
+                .toList();
+        for (ExecutableElement signalMethod : signalMethods) {
+            if (signalMethod.getParameters().size() != 1 || !signalMethod.getTypeParameters().isEmpty()
+                    || signalMethod.getModifiers().contains(Modifier.FINAL) || signalMethod.getModifiers().contains(Modifier.PRIVATE)
+                    || signalMethod.getModifiers().contains(Modifier.STATIC)) {
+                return skip(type, "@SignalFunction " + signalMethod.getSimpleName() + " must be an overridable method with exactly one parameter");
+            }
+        }
+
+        String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        String className = MaestroProcessor.simpleBinaryName(elements, type) + MaestroProcessor.WORKFLOW_SUFFIX;
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) source.append("package ").append(packageName).append(";\n\n");
+        source.append("@javax.annotation.processing.Generated(\"").append(MaestroProcessor.class.getName()).append("\")\n")
+                .append("@SuppressWarnings(\"unchecked\")\n")
+                .append("public final class ").append(className).append(" extends ").append(type.getQualifiedName())
+                .append(" implements lucidity.maestro.engine.internal.WovenWorkflow {\n\n")
+                .append("    private lucidity.maestro.engine.api.workflow.WorkflowOptions maestro$workflowOptions;\n")
+                .append("    private lucidity.maestro.engine.internal.WorkflowInterceptors maestro$interceptors;\n\n")
+                .append("    @Override\n")
+                .append("    public lucidity.maestro.engine.api.workflow.WorkflowOptions getMaestroWorkflowOptions() {\n")
+                .append("        return maestro$workflowOptions;\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public void setMaestroWorkflowOptions(lucidity.maestro.engine.api.workflow.WorkflowOptions workflowOptions) {\n")
+                .append("        this.maestro$workflowOptions = workflowOptions;\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public void setMaestroInterceptors(lucidity.maestro.engine.internal.WorkflowInterceptors interceptors) {\n")
+                .append("        this.maestro$interceptors = interceptors;\n")
+                .append("    }\n");
+
+        appendExecute(source, type, executeMethods.get(0));
+        for (ExecutableElement signalMethod : signalMethods) {
+            appendSignal(source, type, signalMethod);
+        }
+
+        return source.append("}\n").toString();
+    }
+
+    private void appendExecute(StringBuilder source, TypeElement type, ExecutableElement method) {
+        ExecutableType executableType = (ExecutableType) types.asMemberOf((DeclaredType) type.asType(), method);
+        TypeMirror returnType = executableType.getReturnType();
+        TypeMirror parameterType = executableType.getParameterTypes().get(0);
+
+        source.append("\n    @Override\n")
+                .append("    ").append(accessModifier(method)).append(returnType).append(" execute(").append(parameterType).append(" p0) {\n")
+                .append("        ").append(returnType.getKind() == TypeKind.VOID ? "" : "return (" + returnType + ") ")
+                .append("maestro$interceptors.execute(this, p0, maestro$arg -> ");
+        if (returnType.getKind() == TypeKind.VOID) {
+            source.append("{ super.execute((").append(parameterType).append(") maestro$arg); return null; }");
+        } else {
+            source.append("super.execute((").append(parameterType).append(") maestro$arg)");
+        }
+        source.append(");\n")
+                .append("    }\n");
+    }
+
+    private void appendSignal(StringBuilder source, TypeElement type, ExecutableElement method) {
+        ExecutableType executableType = (ExecutableType) types.asMemberOf((DeclaredType) type.asType(), method);
+        TypeMirror returnType = executableType.getReturnType();
+        String name = method.getSimpleName().toString();
+
+        source.append("\n    @Override\n")
+                .append("    ").append(accessModifier(method)).append(returnType).append(" ").append(name)
+                .append("(").append(executableType.getParameterTypes().get(0)).append(" p0)")
+                .append(throwsClause(executableType)).append(" {\n")
+                .append("        ").append(returnType.getKind() == TypeKind.VOID ? "" : "return (" + returnType + ") ")
+                .append("maestro$interceptors.signal(this, \"").append(name).append("\", p0, () -> ");
+        if (returnType.getKind() == TypeKind.VOID) {
+            source.append("{ super.").append(name).append("(p0); return null; }");
+        } else {
+            source.append("super.").append(name).append("(p0)");
+        }
+        source.append(");\n")
+                .append("    }\n");
+    }
+
+    private boolean hasNoArgConstructor(TypeElement type) {
+        return ElementFilter.constructorsIn(type.getEnclosedElements()).stream()
+                .anyMatch(constructor -> constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE));
+    }
+
+    private String skip(TypeElement type, String reason) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                "Not weaving " + type.getQualifiedName() + " at compile time, " + reason, type);
+        return null;
+    }
+
+    static String accessModifier(ExecutableElement method) {
+        if (method.getModifiers().contains(Modifier.PUBLIC)) return "public ";
+        if (method.getModifiers().contains(Modifier.PROTECTED)) return "protected ";
+        return "";
+    }
+
+    static String throwsClause(ExecutableType executableType) {
+        if (executableType.getThrownTypes().isEmpty()) return "";
+        return " throws " + executableType.getThrownTypes().stream().map(TypeMirror::toString).collect(Collectors.joining(", "));
+    }
+}
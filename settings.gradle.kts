@@ -1,4 +1,4 @@
 rootProject.name = "maestro"
 
-include(":example", "maestro-core")
+include(":example", "maestro-core", "maestro-processor")
 
@@ -10,11 +10,14 @@ export default function Dashboard() {
     const [selectedWorkflow, setSelectedWorkflow] = useState<Workflow>()
     const [workflowEvents, setWorkflowEvents] = useState<Event[]>([])
     const [workflows, setWorkflows] = useState<Workflow[]>([])
-
-    const fetchWorkflowEvents = async (workflowId: string) => {
-        const res = await fetch(`${API_BASE}/api/workflows/${workflowId}`);
-        const json = await res.json();
-        setWorkflowEvents(json);
+    const [nextCursor, setNextCursor] = useState<string | null>(null)
+
+    const fetchWorkflows = async (cursor: string | null) => {
+        const res = await fetch(`${API_BASE}/api/workflows${cursor ? `?cursor=${encodeURIComponent(cursor)}` : ''}`);
+        const page = await res.json();
+        setWorkflows(current => cursor ? [...current, ...page.workflows] : page.workflows);
+        setNextCursor(page.nextCursor);
+        return page.workflows as Workflow[];
     };
 
     useEffect(() => {
@@ -23,7 +26,6 @@ export default function Dashboard() {
             const workflowState = event.state?.workflow;
             if (workflowState) {
                 setSelectedWorkflow(workflowState);
-                fetchWorkflowEvents(workflowState.workflowId);
             } else {
                 setSelectedWorkflow(undefined);
                 setWorkflowEvents([]);
@@ -33,10 +35,8 @@ export default function Dashboard() {
         window.addEventListener('popstate', handlePopState);
 
         // Fetch initial workflows
-        fetch(`${API_BASE}/api/workflows`)
-            .then(res => res.json())
-            .then(async data => {
-                setWorkflows(data);
+        fetchWorkflows(null)
+            .then(data => {
 
                 // Check for workflow ID in URL
                 const params = new URLSearchParams(window.location.search);
@@ -47,7 +47,6 @@ export default function Dashboard() {
                     const workflow = data.find((w: Workflow) => w.workflowId === workflowId);
                     if (workflow) {
                         setSelectedWorkflow(workflow);
-                        await fetchWorkflowEvents(workflowId);
                         // Set initial history state
                         window.history.replaceState({ workflow }, '', `?workflow=${workflowId}`);
                     }
@@ -59,7 +58,69 @@ export default function Dashboard() {
         };
     }, []);
 
-    const handleCellClick = async (cell: any) => {
+    // live updates pushed by the server instead of polling it
+    useEffect(() => {
+        const stream = new EventSource(`${API_BASE}/api/stream`);
+
+        stream.addEventListener('workflow', (message: MessageEvent) => {
+            const update = JSON.parse(message.data);
+            setWorkflows(current => {
+                if (update.status === 'STARTED') {
+                    if (current.some(w => w.workflowId === update.workflowId)) return current;
+                    return [{
+                        workflowId: update.workflowId,
+                        className: update.className,
+                        functionName: update.functionName,
+                        status: update.status,
+                        startTimestamp: update.timestamp,
+                        endTimestamp: '',
+                        input: update.data,
+                        output: '',
+                        eventCount: 1,
+                    }, ...current];
+                }
+                return current.map(w => w.workflowId !== update.workflowId ? w : {
+                    ...w,
+                    status: update.status,
+                    endTimestamp: update.timestamp,
+                    output: update.data,
+                });
+            });
+        });
+
+        return () => stream.close();
+    }, []);
+
+    // the selected workflow's history, patched with the events pushed for it alone
+    useEffect(() => {
+        const workflowId = selectedWorkflow?.workflowId;
+        if (!workflowId) return;
+
+        const stream = new EventSource(`${API_BASE}/api/stream?workflowId=${encodeURIComponent(workflowId)}`);
+        // events pushed before the fetch below returns are applied on top of it, applying one twice is harmless
+        let pending: HistoryMessage[] | undefined = [];
+
+        stream.addEventListener('history', (message: MessageEvent) => {
+            const event: HistoryMessage = JSON.parse(message.data);
+            if (pending) pending.push(event);
+            else setWorkflowEvents(current => applyHistory(current, [event]));
+        });
+
+        fetch(`${API_BASE}/api/workflows/${encodeURIComponent(workflowId)}`)
+            .then(res => res.json())
+            .then((events: Event[]) => {
+                if (!pending) return;
+                setWorkflowEvents(applyHistory(events, pending));
+                pending = undefined;
+            });
+
+        return () => {
+            pending = undefined;
+            stream.close();
+        };
+    }, [selectedWorkflow?.workflowId]);
+
+    const handleCellClick = (cell: any) => {
         if (cell.column.id === "input" || cell.column.id === "output") return;
 
         const workflow = cell.row.original;
@@ -70,7 +131,7 @@ export default function Dashboard() {
             `?workflow=${workflow.workflowId}`
         );
 
-        await fetchWorkflowEvents(workflow.workflowId);
+        setWorkflowEvents([]);
         setSelectedWorkflow(workflow);
     }
 
@@ -95,5 +156,47 @@ export default function Dashboard() {
         <WorkflowsTable
             workflows={workflows}
             onCellClick={handleCellClick}
+            onLoadMore={nextCursor ? () => fetchWorkflows(nextCursor) : undefined}
         />
-}
\ No newline at end of file
+}
+
+type HistoryMessage = {
+    workflowId: string
+    category: string
+    status: string
+    className: string
+    functionName: string
+    correlationNumber: number
+    sequenceNumber: number
+    timestamp: string
+    data: string
+}
+
+// a started or received event adds a row, a completed one fills in the end of the row it correlates with
+function applyHistory(events: Event[], messages: HistoryMessage[]): Event[] {
+    let result = events;
+    for (const message of messages) {
+        if (message.status === 'STARTED' || message.status === 'RECEIVED') {
+            if (result.some(e => e.sequenceNumber === message.sequenceNumber)) continue;
+            result = [...result, {
+                workflowId: message.workflowId,
+                category: message.category,
+                className: message.className,
+                functionName: message.functionName,
+                correlationNumber: message.correlationNumber,
+                sequenceNumber: message.sequenceNumber,
+                startTimestamp: message.timestamp,
+                endTimestamp: '',
+                input: message.data,
+                output: '',
+            }];
+        } else if (message.status === 'COMPLETED') {
+            result = result.map(e => e.correlationNumber !== message.correlationNumber ? e : {
+                ...e,
+                endTimestamp: message.timestamp,
+                output: message.data,
+            });
+        }
+    }
+    return result;
+}
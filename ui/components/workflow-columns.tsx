@@ -6,6 +6,8 @@ export type Event = {
     category: string
     className: string
     functionName: string
+    correlationNumber: number
+    sequenceNumber: number
     startTimestamp: string
     endTimestamp: string
     input: string
@@ -16,10 +18,12 @@ export type Workflow = {
     workflowId: string
     className: string
     functionName: string
+    status: string
     startTimestamp: string
     endTimestamp: string
     input: string
     output: string
+    eventCount: number
 }
 
 const tryParseJSON = (jsonString: string) => {
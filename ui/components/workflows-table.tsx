@@ -1,13 +1,15 @@
 import React from "react";
 import { Workflow, workflowColumns } from "@/components/workflow-columns";
 import { DataTable } from "@/components/data-table";
+import { Button } from "@/components/ui/button";
 
 interface WorkflowsTableProps {
     workflows: Workflow[];
     onCellClick: (cell: any) => void;
+    onLoadMore?: () => void;
 }
 
-export function WorkflowsTable({ workflows, onCellClick }: WorkflowsTableProps) {
+export function WorkflowsTable({ workflows, onCellClick, onLoadMore }: WorkflowsTableProps) {
     return (
         <div>
             <div className="relative mb-8">
@@ -18,6 +20,11 @@ export function WorkflowsTable({ workflows, onCellClick }: WorkflowsTableProps)
                 data={workflows}
                 onCellClick={onCellClick}
             />
+            {onLoadMore && (
+                <div className="flex justify-center mt-4">
+                    <Button variant="outline" onClick={onLoadMore}>Load more</Button>
+                </div>
+            )}
         </div>
     );
 }
\ No newline at end of file